@@ -0,0 +1,124 @@
+package assignment;
+
+import java.awt.Point;
+import java.util.SplittableRandom;
+
+/**
+ * The boards the benchmarks run on: standard-size boards filled in representative ways, each
+ * built the same way every time. Every board has a T piece just spawned at the top.
+ */
+public enum Fill {
+    // Nothing placed yet
+    EMPTY,
+    // Pieces dropped at random until the stack is half the height of the board
+    HALF_FULL,
+    // Columns of very different heights, with deep wells between them
+    JAGGED,
+    // Pieces dropped at random until the stack is two rows below the top
+    NEAR_GAME_OVER;
+
+    // The heights of the columns of the JAGGED board; no row is full
+    private static final int[] JAGGED_HEIGHTS = {4, 12, 0, 8, 16, 4, 0, 12, 8, 4};
+
+    /**
+     * Build the board with a T piece spawned at the top
+     * @return the board
+     */
+    TetrisBoard board() {
+        TetrisBoard board = stack();
+        spawn(board, new TetrisPiece(Piece.PieceType.T));
+        return board;
+    }
+
+    /**
+     * Build the board with no piece in the air
+     * @return the board
+     */
+    TetrisBoard stack() {
+        switch(this) {
+            case HALF_FULL:
+                return random(Game.HEIGHT / 2, 1);
+            case JAGGED:
+                return jagged();
+            case NEAR_GAME_OVER:
+                return random(Game.HEIGHT - 2, 2);
+            default:
+                return new TetrisBoard(Game.WIDTH, Game.HEIGHT + Game.TOP_SPACE);
+        }
+    }
+
+    /**
+     * Spawn a piece where the game would
+     * @param board the board
+     * @param piece the piece
+     */
+    static void spawn(TetrisBoard board, Piece piece) {
+        board.nextPiece(piece, board.getWidth() / 2 - piece.getWidth() / 2, Game.HEIGHT);
+    }
+
+    /**
+     * Build a board by dropping random pieces in random columns until the stack reaches the
+     * given height, skipping any that would go over it
+     * @param height the height of the stack
+     * @param seed the seed of the pieces and columns
+     * @return the board
+     */
+    private static TetrisBoard random(int height, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        TetrisBoard board = new TetrisBoard(Game.WIDTH, Game.HEIGHT + Game.TOP_SPACE);
+        while(board.getMaxHeight() < height) {
+            Piece piece = Game.PIECES[random.nextInt(Game.PIECES.length)];
+            for(int r = random.nextInt(TetrisPiece.ROTS); r > 0; r--) {
+                piece = piece.clockwisePiece();
+            }
+            TetrisBoard next = new TetrisBoard(board);
+            next.nextPiece(piece, new Point(random.nextInt(Game.WIDTH - piece.getWidth() + 1), Game.HEIGHT));
+            next.move(Board.Action.DROP);
+            if(next.getMaxHeight() <= height) {
+                board = next;
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Build the JAGGED board out of upright sticks
+     * @return the board
+     */
+    private static TetrisBoard jagged() {
+        TetrisBoard board = new TetrisBoard(Game.WIDTH, Game.HEIGHT + Game.TOP_SPACE);
+        Piece stick = new TetrisPiece(Piece.PieceType.STICK).clockwisePiece();
+        for(int x = 0; x < JAGGED_HEIGHTS.length; x++) {
+            for(int h = 0; h < JAGGED_HEIGHTS[x]; h += 4) {
+                board.nextPiece(stick, new Point(x - column(stick), Game.HEIGHT));
+                board.move(Board.Action.DROP);
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Build a board whose bottom four rows are full but for the last column, with an upright
+     * stick above that column, so that dropping it clears all four rows
+     * @return the board
+     */
+    static TetrisBoard fourLines() {
+        TetrisBoard board = new TetrisBoard(Game.WIDTH, Game.HEIGHT + Game.TOP_SPACE);
+        Piece stick = new TetrisPiece(Piece.PieceType.STICK).clockwisePiece();
+        for(int x = 0; x < Game.WIDTH - 1; x++) {
+            board.nextPiece(stick, new Point(x - column(stick), Game.HEIGHT));
+            board.move(Board.Action.DROP);
+        }
+        board.nextPiece(stick, new Point(Game.WIDTH - 1 - column(stick), Game.HEIGHT));
+        return board;
+    }
+
+    /**
+     * Get the column of an upright stick within its bounding box
+     * @param stick the stick
+     * @return the column
+     */
+    private static int column(Piece stick) {
+        return stick.getBody()[0].x;
+    }
+}
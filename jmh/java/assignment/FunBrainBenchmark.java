@@ -0,0 +1,55 @@
+package assignment;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks of FunBrain deciding a move and scoring a board, on each Fill. A board with no
+ * piece in the air is scored from the features it keeps up to date; one with a piece in the
+ * air is scanned cell by cell.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FunBrainBenchmark {
+
+    @Param({"EMPTY", "HALF_FULL", "JAGGED", "NEAR_GAME_OVER"})
+    public Fill fill;
+
+    private FunBrain brain;
+    private FunBrain copying;
+    private TetrisBoard board;
+    private TetrisBoard stack;
+
+    @Setup
+    public void setup() {
+        brain = new FunBrain();
+        copying = new FunBrain(false);
+        board = fill.board();
+        stack = fill.stack();
+    }
+
+    @Benchmark
+    public Board.Action nextMove() {
+        return brain.nextMove(board);
+    }
+
+    @Benchmark
+    public Board.Action nextMoveCopying() {
+        return copying.nextMove(board);
+    }
+
+    @Benchmark
+    public double scoreBoard() {
+        return brain.scoreBoard(stack);
+    }
+
+    @Benchmark
+    public double scoreBoardScan() {
+        return brain.scoreBoard(board);
+    }
+}
@@ -0,0 +1,97 @@
+package assignment;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of the TetrisBoard operations that the game and the brains make the most of, on
+ * each Fill. Moves change the board, so each one first loads the board into a reused working
+ * board; the load benchmark measures that cost alone, to take away from the others.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TetrisBoardBenchmark {
+
+    /**
+     * A board of each Fill, and a working board to make moves on
+     */
+    @State(Scope.Thread)
+    public static class Boards {
+        @Param({"EMPTY", "HALF_FULL", "JAGGED", "NEAR_GAME_OVER"})
+        public Fill fill;
+
+        TetrisBoard board;
+        TetrisBoard work;
+
+        @Setup
+        public void setup() {
+            board = fill.board();
+            work = new TetrisBoard(board);
+        }
+    }
+
+    /**
+     * Each action to move with
+     */
+    @State(Scope.Thread)
+    public static class Actions {
+        @Param({"LEFT", "RIGHT", "DOWN", "DROP", "CLOCKWISE", "COUNTERCLOCKWISE"})
+        public Board.Action action;
+    }
+
+    /**
+     * A board where dropping the current piece clears four rows
+     */
+    @State(Scope.Thread)
+    public static class FourLines {
+        TetrisBoard board;
+        TetrisBoard work;
+
+        @Setup
+        public void setup() {
+            board = Fill.fourLines();
+            work = new TetrisBoard(board);
+        }
+    }
+
+    @Benchmark
+    public TetrisBoard load(Boards b) {
+        b.work.load(b.board);
+        return b.work;
+    }
+
+    @Benchmark
+    public Board.Result move(Boards b, Actions a) {
+        b.work.load(b.board);
+        return b.work.move(a.action);
+    }
+
+    @Benchmark
+    public Board testMove(Boards b, Actions a) {
+        return b.board.testMove(a.action);
+    }
+
+    @Benchmark
+    public TetrisBoard copy(Boards b) {
+        return new TetrisBoard(b.board);
+    }
+
+    @Benchmark
+    public void dropHeight(Boards b, Blackhole bh) {
+        Piece piece = b.board.getCurrentPiece();
+        for(int x = 0; x + piece.getWidth() <= b.board.getWidth(); x++) {
+            bh.consume(b.board.dropHeight(piece, x));
+        }
+    }
+
+    @Benchmark
+    public Board.Result clearFourLines(FourLines f) {
+        f.work.load(f.board);
+        return f.work.move(Board.Action.DROP);
+    }
+}
@@ -0,0 +1,42 @@
+package assignment;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks of rotating each kind of TetrisPiece, and of making one
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TetrisPieceBenchmark {
+
+    @Param({"T", "SQUARE", "STICK", "LEFT_L", "RIGHT_L", "LEFT_DOG", "RIGHT_DOG"})
+    public Piece.PieceType type;
+
+    private Piece piece;
+
+    @Setup
+    public void setup() {
+        piece = new TetrisPiece(type);
+    }
+
+    @Benchmark
+    public Piece clockwise() {
+        return piece.clockwisePiece();
+    }
+
+    @Benchmark
+    public Piece counterclockwise() {
+        return piece.counterclockwisePiece();
+    }
+
+    @Benchmark
+    public Piece construct() {
+        return new TetrisPiece(type);
+    }
+}
@@ -0,0 +1,301 @@
+package assignment;
+
+import java.util.List;
+
+/**
+ * A Brain that searches as deep as it has time for. It looks at every reachable placement of
+ * the current piece, then of each piece after it that the game lets it see, scoring the boards
+ * at the end like FunBrain does: most rows cleared first, then the highest score. Each depth is
+ * searched in turn, starting with the best placement of the depth before, so that whenever the
+ * time runs out there is an answer ready. The current piece alone is always searched in full.
+ *
+ * By default the brain may spend half of a tick of the JTetris timer on a decision.
+ */
+public class AnytimeBrain implements Brain {
+    // The part of a tick of the timer the brain may spend deciding
+    public static final double TICK_FRACTION = 0.5;
+    // The value of a placement that ends the game
+    private static final double[] LOST = {-1, Double.NEGATIVE_INFINITY};
+
+    private final Game game;
+    private final int lookahead;
+    // Set by the thread that shows the game, read by the one deciding
+    private volatile long budget;
+    // One search per depth, since each holds its placements while the depths below it are searched
+    private final PlacementSearch[] searches;
+    private int[] heights = new int[0];
+    // When the current decision has to be made by, and whether it has run out of time
+    private long deadline;
+    private boolean stopped;
+    // The values of the placements of the current piece at the last depth searched in full,
+    // and the order to search them in at the next depth
+    private int[] order = new int[0];
+    private int[] cleared = new int[0];
+    private double[] scores = new double[0];
+    private int depthSearched;
+    // The table to cache the scores of boards in, or null to score them every time
+    private TranspositionTable table;
+
+    /**
+     * Construct an AnytimeBrain that only knows the current piece
+     */
+    public AnytimeBrain() {
+        this(null, 0);
+    }
+
+    /**
+     * Construct an AnytimeBrain that can see the pieces to come in the given game
+     * @param game the game, whose piece generator shows the pieces to come
+     * @param lookahead how many pieces after the current one to look at
+     */
+    public AnytimeBrain(Game game, int lookahead) {
+        if (lookahead < 0 || (game == null && lookahead > 0)) {
+            throw new IllegalArgumentException("Can only look ahead at the pieces of a game");
+        }
+        this.game = game;
+        this.lookahead = lookahead;
+        searches = new PlacementSearch[lookahead + 1];
+        for (int i = 0; i < searches.length; i++) {
+            searches[i] = new PlacementSearch();
+        }
+        setTickDelay(JTetris.DELAY);
+    }
+
+    /**
+     * Set how long the brain may spend on each decision
+     * @param nanos the time in nanoseconds
+     */
+    public void setTimeBudget(long nanos) {
+        budget = Math.max(nanos, 0);
+    }
+
+    /**
+     * Set how long the brain may spend on each decision from the delay between ticks of the
+     * timer, as set by the speed slider
+     * @param millis the delay in milliseconds
+     */
+    public void setTickDelay(int millis) {
+        setTimeBudget((long) (millis * TICK_FRACTION * 1_000_000));
+    }
+
+    /**
+     * Cache the scores of the boards at the end of the search in the given table, so that
+     * boards reached by more than one sequence of placements are only scored once. The
+     * scores are the same as FunBrain's, so the table can be shared with a FunBrain.
+     * @param table the table, or null to stop caching
+     */
+    public void setTranspositionTable(TranspositionTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Set whether the piece falls a row before each move of the brain's plans, as it does when
+     * JBrainTetris follows them. With gravity, plans only go where the piece can get to while
+     * falling, and land where the brain meant them to when followed that way.
+     * @param gravity whether to plan for gravity
+     */
+    public void setGravity(boolean gravity) {
+        for (PlacementSearch search : searches) {
+            search.setGravity(gravity);
+        }
+    }
+
+    /**
+     * Get whether the brain plans for the piece falling a row before each move
+     * @return whether the brain plans for gravity
+     */
+    public boolean isGravity() {
+        return searches[0].isGravity();
+    }
+
+    /**
+     * Get how long the brain may spend on each decision
+     * @return the time in nanoseconds
+     */
+    public long getTimeBudget() {
+        return budget;
+    }
+
+    /**
+     * Get how many pieces deep the last decision was searched in full
+     * @return the depth
+     */
+    public int getDepthSearched() {
+        return depthSearched;
+    }
+
+    /**
+     * Decide what the next move should be based on the state of the board.
+     * @param currentBoard the current board
+     * @return the next move
+     */
+    @Override
+    public Board.Action nextMove(Board currentBoard) {
+        return plan(currentBoard).get(0);
+    }
+
+    /**
+     * Decide every move on the way to the best placement found in time
+     * @param currentBoard the current board
+     * @return the moves
+     */
+    @Override
+    public List<Board.Action> plan(Board currentBoard) {
+        deadline = System.nanoTime() + budget;
+        stopped = false;
+        depthSearched = 0;
+        if (currentBoard.getCurrentPiece() == null) {
+            return List.of(Board.Action.DROP);
+        }
+        TetrisBoard root = new TetrisBoard(currentBoard);
+        if (heights.length != root.getWidth()) {
+            heights = new int[root.getWidth()];
+        }
+        PlacementSearch search = searches[0];
+        int count = search.search(root);
+        if (count == 0) {
+            return List.of(Board.Action.DROP);
+        }
+        if (order.length < count) {
+            order = new int[count];
+            cleared = new int[count];
+            scores = new double[count];
+        }
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+
+        // Upcoming pieces that the game shows
+        Piece[] upcoming = new Piece[lookahead];
+        for (int i = 0; i < lookahead; i++) {
+            upcoming[i] = game.getPieceGenerator().peek(i);
+        }
+
+        int best = 0;
+        for (int depth = 0; depth <= lookahead; depth++) {
+            // The first depth always runs to the end, so there is always an answer
+            int bestHere = -1, searched = 0;
+            for (int k = 0; k < count; k++) {
+                int i = order[k];
+                TetrisBoard child = placed(root, search, i);
+                double[] value = lost(child) ? LOST
+                        : evaluate(child, child.getRowsCleared() - root.getRowsCleared(), upcoming, 0, depth);
+                if (stopped) break;
+                cleared[i] = (int) value[0];
+                scores[i] = value[1];
+                searched++;
+                if (bestHere < 0 || better(cleared[i], scores[i], cleared[bestHere], scores[bestHere])) {
+                    bestHere = i;
+                }
+                if (depth > 0 && System.nanoTime() > deadline) {
+                    stopped = true;
+                    break;
+                }
+            }
+            // A depth cut short still compares the placements it finished, and the first of
+            // those was the best placement of the depth before
+            if (searched > 0) {
+                best = bestHere;
+            }
+            if (stopped) break;
+            depthSearched = depth + 1;
+            sortOrder(count);
+        }
+        return search.getPath(best);
+    }
+
+    /**
+     * Find the best value of the board after placing the upcoming pieces, searching the given
+     * number of pieces more
+     * @param board the board, with no piece in the air
+     * @param cleared the rows cleared so far on the way to this board
+     * @param upcoming the upcoming pieces
+     * @param next the index of the next upcoming piece
+     * @param depth how many more pieces to place
+     * @return the rows cleared and the score of the best board found
+     */
+    private double[] evaluate(TetrisBoard board, int cleared, Piece[] upcoming, int next, int depth) {
+        if (depth == 0) {
+            return new double[] {cleared, table == null ? FunBrain.score(board, heights)
+                    : FunBrain.score(table, board, heights, Weights.DEFAULT)};
+        }
+        Piece piece = upcoming[next];
+        TetrisBoard spawned = new TetrisBoard(board);
+        try {
+            spawned.nextPiece(piece, board.getWidth() / 2 - piece.getWidth() / 2, game.getHeight());
+        } catch (IllegalArgumentException ex) {
+            // No room for the piece: the game would be over
+            return LOST;
+        }
+        PlacementSearch search = searches[next + 1];
+        int count = search.search(spawned);
+        double[] best = LOST;
+        for (int i = 0; i < count && !stopped; i++) {
+            TetrisBoard child = placed(spawned, search, i);
+            if (lost(child)) continue;
+            double[] value = evaluate(child, cleared + child.getRowsCleared() - board.getRowsCleared(),
+                    upcoming, next + 1, depth - 1);
+            if (better((int) value[0], value[1], (int) best[0], best[1])) {
+                best = value;
+            }
+            if (System.nanoTime() > deadline) {
+                stopped = true;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Make a copy of the board with its current piece moved to one of the placements found
+     * @param board the board
+     * @param search the search that found the placements
+     * @param i the index of the placement
+     * @return the board after the piece is placed
+     */
+    private static TetrisBoard placed(TetrisBoard board, PlacementSearch search, int i) {
+        TetrisBoard child = new TetrisBoard(board);
+        for (Board.Action act : search.getPath(i)) {
+            if (search.isGravity() && child.move(Board.Action.DOWN) == Board.Result.PLACE) break;
+            if (child.move(act) == Board.Result.PLACE) break;
+        }
+        return child;
+    }
+
+    /**
+     * Check whether a placement ended the game by reaching into the top space
+     * @param board the board after the placement
+     * @return whether the game is lost
+     */
+    private boolean lost(TetrisBoard board) {
+        return game != null && board.getMaxHeight() > game.getHeight();
+    }
+
+    /**
+     * Compare two values the way FunBrain does: more rows cleared first, then a higher score
+     * @param cleared the rows cleared of the first value
+     * @param score the score of the first value
+     * @param otherCleared the rows cleared of the second value
+     * @param otherScore the score of the second value
+     * @return whether the first value is better
+     */
+    private static boolean better(int cleared, double score, int otherCleared, double otherScore) {
+        return cleared > otherCleared || (cleared == otherCleared && score > otherScore);
+    }
+
+    /**
+     * Order the placements of the current piece from best to worst, keeping the order of
+     * placements of equal value, for searching at the next depth
+     * @param count the number of placements
+     */
+    private void sortOrder(int count) {
+        // Insertion sort: there are only a few dozen placements, and it is stable
+        for (int k = 1; k < count; k++) {
+            int i = order[k], j = k - 1;
+            while (j >= 0 && better(cleared[i], scores[i], cleared[order[j]], scores[order[j]])) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = i;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package assignment;
+
+import java.util.SplittableRandom;
+
+/**
+ * A PieceGenerator that deals the 7 canonical tetris pieces out of a shuffled bag, refilling
+ * the bag once it is empty. Every piece comes up once in each run of 7, so there are never
+ * more than 12 pieces between two of the same kind.
+ */
+public final class BagPieceGenerator extends LookaheadGenerator {
+    private final byte[] bag = allPieces();
+    private int left;    // how many pieces are left in the bag
+
+    /**
+     * Construct a generator with the given seed
+     * @param seed the seed
+     */
+    public BagPieceGenerator(long seed) {
+        this(new SplittableRandom(seed));
+    }
+
+    /**
+     * Construct a generator using the given random generator
+     * @param random the random generator
+     */
+    private BagPieceGenerator(SplittableRandom random) {
+        super(random);
+    }
+
+    @Override
+    int generate() {
+        if(left == 0) {
+            shuffle(bag, bag.length);
+            left = bag.length;
+        }
+        return bag[bag.length - left--];
+    }
+
+    @Override
+    public synchronized PieceGenerator split() {
+        return new BagPieceGenerator(random.split());
+    }
+}
@@ -101,6 +101,23 @@ public interface Board {
      */
     Board testMove(Action act);
 
+    /**
+     * Applies the given action to the board like {@code move}, but also records what it
+     * changed so that it can be undone with {@code pop}. Pushed actions form a stack, which
+     * lets a search explore and backtrack on a single board without copying it.
+     *
+     * Calling {@code move} or {@code nextPiece} discards the recorded actions.
+     */
+    Result push(Action act);
+
+    /**
+     * Undoes the last action applied with {@code push}, restoring the board, its current piece
+     * and position, and the last action and result to what they were before it.
+     *
+     * If there is no action to undo, an {@link IllegalStateException} should be thrown.
+     */
+    void pop();
+
     /**
      * Return the current piece on the board, or null if there is no current piece.
      */
@@ -117,6 +134,18 @@ public interface Board {
      */
     Point getCurrentPiecePosition();
 
+    /**
+     * Return the x value of the current piece's position, as given by {@code getCurrentPiecePosition},
+     * without allocating a Point. The result is unspecified if there is no current piece.
+     */
+    int getCurrentPieceX();
+
+    /**
+     * Return the y value of the current piece's position, as given by {@code getCurrentPiecePosition},
+     * without allocating a Point. The result is unspecified if there is no current piece.
+     */
+    int getCurrentPieceY();
+
     /**
      * Give a piece to the board to use as its next piece, placing the lower-left hand corner
      * of the piece's bounding box at the given position.
@@ -126,6 +155,12 @@ public interface Board {
      */
     void nextPiece(Piece p, Point startingPosition);
 
+    /**
+     * Give a piece to the board to use as its next piece, like {@code nextPiece(Piece, Point)}, with
+     * the lower-left hand corner of the piece's bounding box at (x, y).
+     */
+    void nextPiece(Piece p, int x, int y);
+
     /**
      * Return true if the given object is equal to this object. You are free to assume that the
      * other object is another board; for safety, you should probably verify before casting
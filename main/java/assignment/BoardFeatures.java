@@ -0,0 +1,113 @@
+package assignment;
+
+/**
+ * The features of a TetrisBoard's stack that heuristics score boards by. The board keeps them
+ * up to date as pieces are placed and rows are cleared, so reading a total is constant time
+ * instead of a scan of the grid. The current piece is not part of the stack until it is placed,
+ * so it is not counted.
+ */
+public final class BoardFeatures {
+    private final TetrisBoard board;
+
+    /**
+     * Construct the features of the given board
+     * @param board the board
+     */
+    BoardFeatures(TetrisBoard board) {
+        this.board = board;
+    }
+
+    /**
+     * Get the number of filled cells
+     * @return the number of filled cells
+     */
+    public int getFilled() {
+        return board.filled;
+    }
+
+    /**
+     * Get the number of holes: empty cells below the top of their column
+     * @return the number of holes
+     */
+    public int getHoles() {
+        return board.aggregateHeight - board.filled;
+    }
+
+    /**
+     * Get the number of holes in the given column. This walks the column, so it takes time
+     * proportional to its height.
+     * @param x the column
+     * @return the number of holes in the column
+     */
+    public int getColumnHoles(int x) {
+        int holes = 0;
+        for(int y = board.colHeight[x] - 2; y >= 0; y--) {
+            if((board.rows[y] & 1L << x) == 0) holes++;
+        }
+        return holes;
+    }
+
+    /**
+     * Get the depth of the highest hole in the given column: the number of filled cells above
+     * it. This walks the column down to the hole.
+     * @param x the column
+     * @return the depth of the highest hole, or 0 if the column has no holes
+     */
+    public int getHoleDepth(int x) {
+        int top = board.colHeight[x];
+        for(int y = top - 1; y >= 0; y--) {
+            if((board.rows[y] & 1L << x) == 0) return top - 1 - y;
+        }
+        return 0;
+    }
+
+    /**
+     * Get the sum of the heights of the columns
+     * @return the aggregate height
+     */
+    public int getAggregateHeight() {
+        return board.aggregateHeight;
+    }
+
+    /**
+     * Get the sum of the differences in height between neighbouring columns
+     * @return the bumpiness
+     */
+    public int getBumpiness() {
+        return board.bumpiness;
+    }
+
+    /**
+     * Get the sum of the depths of the wells
+     * @return the total well depth
+     */
+    public int getWells() {
+        return board.wells;
+    }
+
+    /**
+     * Get how far the given column is below both of its neighbours, with the walls counted
+     * as being as high as the board
+     * @param x the column
+     * @return the depth of the well, or 0 if the column is not a well
+     */
+    public int getWellDepth(int x) {
+        return board.wellDepth(x);
+    }
+
+    /**
+     * Get the number of pairs of filled cells that are side by side or one above the other
+     * @return the number of contacts
+     */
+    public int getContacts() {
+        return board.contacts;
+    }
+
+    /**
+     * Get the number of sides of filled cells that touch a wall or the floor
+     * @return the number of wall contacts
+     */
+    public int getWallContacts() {
+        return board.wallContacts;
+    }
+}
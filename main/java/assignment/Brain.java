@@ -1,8 +1,10 @@
 package assignment;
 
+import java.util.List;
+
 /**
- * Brain interface for JTetris; has a single method which takes the current
- * board state and returns the desired action.
+ * Brain interface for JTetris; takes the current board state and returns
+ * the desired action, or a plan of actions for the current piece.
  */
 public interface Brain {
 
@@ -12,4 +14,16 @@ public interface Brain {
      * Should not mutate the state of the given board.
      */
     Board.Action nextMove(Board currentBoard);
+
+    /**
+     * Decide all the moves to make with the current piece, in order, ending with the move
+     * that places it. A caller can make these moves one at a time instead of asking for every
+     * move, but should ask again once the piece or the board stops matching what the plan
+     * expects. By default the plan is just the next move.
+     *
+     * Should not mutate the state of the given board.
+     */
+    default List<Board.Action> plan(Board currentBoard) {
+        return List.of(nextMove(currentBoard));
+    }
 }
@@ -1,6 +1,8 @@
 package assignment;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * A Lame Brain implementation for JTetris; tries all possible places to put the
@@ -13,13 +15,163 @@ public class FunBrain implements Brain {
     private ArrayList<Board.Action> firstMoves;
     // The x and y changes for the four adjacent positions around a square
     private static final int[][] d = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+
+    // Whether to search on a reused scratch board instead of copies of the board
+    private final boolean reuseBoards;
+    private TetrisBoard scratch;
+    // The column heights of the board being scored, for sorting
+    private int[] heights = new int[0];
+    // The best option found so far by the scratch search
+    private double best;
+    private int maxCleared;
+    private Board.Action bestMove;
+    private int bestGroup, bestShift;
+    // The number of options weighed by the last decision, for the flight recorder
+    private int candidates;
+
+    // The pool to score options on in parallel, or null to score them one at a time
+    private final ForkJoinPool pool;
+    // The options found by the scratch search for scoring in parallel: the rotation moves
+    // before them, how far they shift the piece, their first move, and their results
+    private int count;
+    private int group;
+    private int[] groups = new int[16], shifts = new int[16];
+    private Board.Action[] moves = new Board.Action[16];
+    private int[] cleared = new int[16];
+    private double[] scores = new double[16];
+    // Options are scored in tasks of at most this many
+    private static final int BATCH = 8;
+
+    // The weights to score boards with
+    private Weights weights = Weights.DEFAULT;
+    // The table to cache scores and decisions in, or null to compute them every time
+    private TranspositionTable table;
+    // Whether plans are made for a piece that falls a row before each move
+    private boolean gravity;
+    // Mixed into the hash of a board to key the decision for it, one per rotation of its
+    // piece, since the hash of a board only covers the cells the piece fills
+    private static final long[] DECISION_KEYS = {
+        0x9e3779b97f4a7c15L, 0xc2b2ae3d27d4eb4fL, 0x165667b19e3779f9L, 0xd6e8feb86659fd93L
+    };
+    // The rotation moves made before each group of options
+    private static final Board.Action[][] ROTATIONS = {
+        {},
+        {Board.Action.CLOCKWISE},
+        {Board.Action.COUNTERCLOCKWISE},
+        {Board.Action.CLOCKWISE, Board.Action.CLOCKWISE}
+    };
+
+    /**
+     * Construct a FunBrain that searches on a reused scratch board, so that once it has
+     * warmed up, deciding a move does not allocate
+     */
+    public FunBrain() {
+        this(true);
+    }
+
+    /**
+     * Construct a FunBrain
+     * @param reuseBoards whether to search on a reused scratch board, or on a new copy of the
+     *                    board for every option. Both make the same decisions.
+     */
+    public FunBrain(boolean reuseBoards) {
+        this.reuseBoards = reuseBoards;
+        this.pool = null;
+    }
+
+    /**
+     * Construct a FunBrain that scores its options in parallel on the given pool. It makes the
+     * same decisions as a FunBrain that scores them one at a time.
+     * @param pool the pool
+     */
+    public FunBrain(ForkJoinPool pool) {
+        this.reuseBoards = true;
+        this.pool = Objects.requireNonNull(pool);
+    }
+
+    /**
+     * Score boards with the given weights instead of the default ones
+     * @param weights the weights
+     */
+    public void setWeights(Weights weights) {
+        this.weights = Objects.requireNonNull(weights);
+    }
+
+    /**
+     * Get the weights boards are scored with
+     * @return the weights
+     */
+    public Weights getWeights() {
+        return weights;
+    }
+
+    /**
+     * Cache the scores of boards and the decisions made for them in the given table, so that
+     * boards reached again, by a different option or on a later move, are not scored again.
+     * The table can be shared with other brains that score with the same weights, and the
+     * decisions made stay the same.
+     * @param table the table, or null to stop caching
+     */
+    public void setTranspositionTable(TranspositionTable table) {
+        this.table = table;
+    }
     
+    /**
+     * Set whether the piece falls a row before each move of the brain's plans, as it does when
+     * JBrainTetris follows them. With gravity, each option is played out with the falls, so a
+     * plan lands where the brain meant it to even when a fall changes what a rotation or shift
+     * does. Only plans are affected; nextMove decides as before.
+     * @param gravity whether to plan for gravity
+     */
+    public void setGravity(boolean gravity) {
+        this.gravity = gravity;
+    }
+
+    /**
+     * Get whether the brain plans for the piece falling a row before each move
+     * @return whether the brain plans for gravity
+     */
+    public boolean isGravity() {
+        return gravity;
+    }
+
     /**
      * Decide what the next move should be based on the state of the board.
      * @param currentBoard the current board
      * @return the next move
      */
     public Board.Action nextMove(Board currentBoard) {
+        GameEvents.Decision event = beginDecision();
+        candidates = 0;
+        Board.Action move = decide(currentBoard);
+        if (event != null) {
+            commit(event, currentBoard, move);
+        }
+        return move;
+    }
+
+    /**
+     * Decide what the next move should be, as nextMove
+     * @param currentBoard the current board
+     * @return the next move
+     */
+    private Board.Action decide(Board currentBoard) {
+        if (reuseBoards) {
+            if (table == null || currentBoard.getCurrentPiece() == null) {
+                return searchScratch(currentBoard);
+            }
+            // Decisions are cached by the board and the rotation of its piece
+            long key = (currentBoard instanceof TetrisBoard ? (TetrisBoard) currentBoard
+                    : new TetrisBoard(currentBoard)).getHash()
+                    ^ DECISION_KEYS[currentBoard.getCurrentPiece().getRotationIndex()];
+            TranspositionTable.Entry entry = table.get(key);
+            if (entry != null && entry.getMove() != null) {
+                return entry.getMove();
+            }
+            Board.Action move = searchScratch(currentBoard);
+            table.put(key, 1, maxCleared - currentBoard.getRowsCleared(), best, move);
+            return move;
+        }
         // Fill the options array with versions of the new Board
         options = new ArrayList<>();
         firstMoves = new ArrayList<>();
@@ -38,6 +190,7 @@ public class FunBrain implements Brain {
         int bestIndex = 0;
 
         // Check all the options and get the one with the highest score
+        candidates = options.size();
         int maxCleared = currentBoard.getRowsCleared();
         for (int i = 0; i < options.size(); i++) {
             double score = scoreBoard(options.get(i));
@@ -57,6 +210,337 @@ public class FunBrain implements Brain {
         return firstMoves.get(bestIndex);
     }
 
+    /**
+     * Decide every move on the way to the place nextMove is heading for: the rotations, then
+     * the shifts, then the drop. With gravity, the best place the piece can get to that way
+     * while falling a row before each move.
+     * @param currentBoard the current board
+     * @return the moves
+     */
+    @Override
+    public List<Board.Action> plan(Board currentBoard) {
+        GameEvents.Decision event = beginDecision();
+        candidates = 0;
+        if (gravity) {
+            searchFalling(currentBoard);
+        } else {
+            searchScratch(currentBoard);
+        }
+        List<Board.Action> plan = new ArrayList<>(ROTATIONS[bestGroup].length + Math.abs(bestShift) + 1);
+        Collections.addAll(plan, ROTATIONS[bestGroup]);
+        for (int k = Math.abs(bestShift); k > 0; k--) {
+            plan.add(bestShift < 0 ? Board.Action.LEFT : Board.Action.RIGHT);
+        }
+        plan.add(Board.Action.DROP);
+        if (event != null) {
+            commit(event, currentBoard, plan.get(0));
+        }
+        return plan;
+    }
+
+    /**
+     * Start timing a decision with a flight recorder event, if decisions are being recorded
+     * @return the event, or null if decisions are not being recorded
+     */
+    private static GameEvents.Decision beginDecision() {
+        if (!GameEvents.DECISION.isEnabled()) {
+            return null;
+        }
+        GameEvents.Decision event = new GameEvents.Decision();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * End a flight recorder event for a decision, and commit it if it passes the recording's
+     * threshold
+     * @param event the event, begun
+     * @param board the board decided on
+     * @param move the first move decided
+     */
+    private void commit(GameEvents.Decision event, Board board, Board.Action move) {
+        event.end();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.brain = getClass().getSimpleName();
+        event.candidates = candidates;
+        event.move = move.name();
+        event.stackHeight = board.getMaxHeight();
+        event.commit();
+    }
+
+    /**
+     * Decide the next move the same way as nextMove, by trying the same options in the same
+     * order, but by applying and undoing moves on the scratch board instead of copying boards
+     * @param currentBoard the current board
+     * @return the next move
+     */
+    private Board.Action searchScratch(Board currentBoard) {
+        loadScratch(currentBoard);
+        best = Integer.MIN_VALUE;
+        maxCleared = scratch.getRowsCleared();
+        bestMove = Board.Action.DROP;
+        bestGroup = bestShift = 0;
+        count = 0;
+
+        // The current rotation, then clockwise, counterclockwise and turned around
+        for (group = 0; group < ROTATIONS.length; group++) {
+            for (Board.Action rotation : ROTATIONS[group]) {
+                scratch.push(rotation);
+            }
+            scoreOptions(group == 0 ? null : ROTATIONS[group][0]);
+            for (int i = 0; i < ROTATIONS[group].length; i++) {
+                scratch.pop();
+            }
+        }
+
+        if (pool != null) {
+            // Score the options in parallel, then pick the best in order as if they had been
+            // scored one at a time
+            pool.invoke(new Scorer(0, count));
+            for (int i = 0; i < count; i++) {
+                keepBest(cleared[i], scores[i], moves[i], groups[i], shifts[i]);
+            }
+        }
+        return bestMove;
+    }
+
+    /**
+     * Load the given board into the scratch board
+     * @param currentBoard the board
+     */
+    private void loadScratch(Board currentBoard) {
+        if (scratch == null) {
+            scratch = new TetrisBoard(currentBoard.getWidth(), currentBoard.getHeight());
+        }
+        if (currentBoard instanceof TetrisBoard) {
+            scratch.load((TetrisBoard) currentBoard);
+        } else {
+            scratch.load(new TetrisBoard(currentBoard));
+        }
+    }
+
+    /**
+     * Find the best option the way searchScratch does, but with the piece falling a row
+     * before each rotation, shift and drop. An option the fall places early is scored where
+     * it lands. Options are scored one at a time, even with a pool.
+     * @param currentBoard the current board
+     */
+    private void searchFalling(Board currentBoard) {
+        loadScratch(currentBoard);
+        best = Integer.MIN_VALUE;
+        maxCleared = scratch.getRowsCleared();
+        bestMove = Board.Action.DROP;
+        bestGroup = bestShift = 0;
+
+        for (group = 0; group < ROTATIONS.length; group++) {
+            Board.Action firstMove = group == 0 ? Board.Action.DROP : ROTATIONS[group][0];
+            int pushed = 0;
+            boolean placed = false;
+            for (Board.Action rotation : ROTATIONS[group]) {
+                pushed++;
+                if (scratch.push(Board.Action.DOWN) == Board.Result.PLACE) {
+                    placed = true;
+                    break;
+                }
+                scratch.push(rotation);
+                pushed++;
+            }
+            if (placed) {
+                scorePlaced(firstMove, 0);
+            } else {
+                scoreFallingDrop(firstMove, 0);
+                scoreFallingShifts(Board.Action.LEFT, group == 0 ? null : firstMove);
+                scoreFallingShifts(Board.Action.RIGHT, group == 0 ? null : firstMove);
+            }
+            while (pushed-- > 0) {
+                scratch.pop();
+            }
+        }
+    }
+
+    /**
+     * Score the places the falling piece of the scratch board can be dropped after shifting
+     * it one or more times, leaving the scratch board as it was
+     * @param shift the direction to shift in
+     * @param firstMove the first move on the way to these options, or null to use the shift
+     */
+    private void scoreFallingShifts(Board.Action shift, Board.Action firstMove) {
+        int pushed = 0, shifted = 0;
+        while (true) {
+            pushed++;
+            // Once the fall places the piece, it can't be shifted any further
+            if (scratch.push(Board.Action.DOWN) == Board.Result.PLACE) break;
+            pushed++;
+            if (scratch.push(shift) != Board.Result.SUCCESS) break;
+            shifted++;
+            scoreFallingDrop(firstMove == null ? shift : firstMove,
+                    shift == Board.Action.LEFT ? -shifted : shifted);
+        }
+        while (pushed-- > 0) {
+            scratch.pop();
+        }
+    }
+
+    /**
+     * Score dropping the falling piece of the scratch board, or wherever the fall before the
+     * drop places it, leaving the scratch board as it was
+     * @param firstMove the first move on the way to this option
+     * @param shift how far the piece has been shifted, negative for left
+     */
+    private void scoreFallingDrop(Board.Action firstMove, int shift) {
+        if (scratch.push(Board.Action.DOWN) != Board.Result.PLACE) {
+            scratch.push(Board.Action.DROP);
+            scorePlaced(firstMove, shift);
+            scratch.pop();
+        } else {
+            scorePlaced(firstMove, shift);
+        }
+        scratch.pop();
+    }
+
+    /**
+     * Score the scratch board once its piece has been placed, keeping the option if it is the
+     * best so far
+     * @param firstMove the first move on the way to this option
+     * @param shift how far the piece has been shifted, negative for left
+     */
+    private void scorePlaced(Board.Action firstMove, int shift) {
+        candidates++;
+        int rowsCleared = scratch.getRowsCleared();
+        if (rowsCleared >= maxCleared) {
+            keepBest(rowsCleared, table == null ? scoreBoard(scratch) : score(table, scratch, heights(), weights),
+                    firstMove, group, shift);
+        }
+    }
+
+    /**
+     * Score all the places we can drop the current piece of the scratch board, in the same
+     * order as enumerateOptions, leaving the scratch board as it was
+     * @param firstMove the first move on the way to these options, or null to use the move
+     *                  that shifts the piece towards each one
+     */
+    private void scoreOptions(Board.Action firstMove) {
+        scoreDrop(firstMove == null ? Board.Action.DROP : firstMove, 0);
+        scoreShifts(Board.Action.LEFT, firstMove);
+        scoreShifts(Board.Action.RIGHT, firstMove);
+    }
+
+    /**
+     * Score the places we can drop the current piece of the scratch board after shifting it
+     * one or more times, leaving the scratch board as it was
+     * @param shift the direction to shift in
+     * @param firstMove the first move on the way to these options, or null to use the shift
+     */
+    private void scoreShifts(Board.Action shift, Board.Action firstMove) {
+        int pushed = 0;
+        while (true) {
+            pushed++;
+            if (scratch.push(shift) != Board.Result.SUCCESS) break;
+            scoreDrop(firstMove == null ? shift : firstMove, shift == Board.Action.LEFT ? -pushed : pushed);
+        }
+        while (pushed-- > 0) {
+            scratch.pop();
+        }
+    }
+
+    /**
+     * Score dropping the current piece of the scratch board, keeping it if it is the best so
+     * far by the same rules as nextMove. When scoring in parallel, the option is only
+     * recorded, to be scored later.
+     * @param firstMove the first move on the way to this option
+     * @param shift how far the piece has been shifted, negative for left
+     */
+    private void scoreDrop(Board.Action firstMove, int shift) {
+        candidates++;
+        if (pool != null) {
+            if (count == moves.length) {
+                groups = Arrays.copyOf(groups, count * 2);
+                shifts = Arrays.copyOf(shifts, count * 2);
+                moves = Arrays.copyOf(moves, count * 2);
+                cleared = Arrays.copyOf(cleared, count * 2);
+                scores = Arrays.copyOf(scores, count * 2);
+            }
+            groups[count] = group;
+            shifts[count] = shift;
+            moves[count++] = firstMove;
+            return;
+        }
+        scratch.push(Board.Action.DROP);
+        int rowsCleared = scratch.getRowsCleared();
+        // Options that clear fewer rows than the best so far can't win, so aren't scored
+        if (rowsCleared >= maxCleared) {
+            keepBest(rowsCleared, table == null ? scoreBoard(scratch) : score(table, scratch, heights(), weights),
+                    firstMove, group, shift);
+        }
+        scratch.pop();
+    }
+
+    /**
+     * Keep the given option if it clears more rows than the best so far, or as many rows with
+     * a higher score
+     * @param rowsCleared the rows cleared by the option
+     * @param score the score of the option
+     * @param firstMove the first move on the way to the option
+     * @param group the index of the rotation moves before the option
+     * @param shift how far the option shifts the piece, negative for left
+     */
+    private void keepBest(int rowsCleared, double score, Board.Action firstMove, int group, int shift) {
+        if (rowsCleared > maxCleared || (rowsCleared == maxCleared && score > best)) {
+            best = score;
+            bestMove = firstMove;
+            bestGroup = group;
+            bestShift = shift;
+            maxCleared = rowsCleared;
+        }
+    }
+
+    /**
+     * Scores a range of the recorded options, splitting it in half until it is small enough.
+     * Each task plays the options out on its own copy of the scratch board.
+     */
+    private final class Scorer extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int from, to;
+
+        Scorer(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BATCH) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Scorer(from, mid), new Scorer(mid, to));
+                return;
+            }
+            TetrisBoard board = new TetrisBoard(scratch.getWidth(), scratch.getHeight());
+            board.load(scratch);
+            int[] heights = new int[board.getWidth()];
+            for (int i = from; i < to; i++) {
+                int pushed = 0;
+                for (Board.Action rotation : ROTATIONS[groups[i]]) {
+                    board.push(rotation);
+                    pushed++;
+                }
+                Board.Action shift = shifts[i] < 0 ? Board.Action.LEFT : Board.Action.RIGHT;
+                for (int k = Math.abs(shifts[i]); k > 0; k--) {
+                    board.push(shift);
+                    pushed++;
+                }
+                board.push(Board.Action.DROP);
+                pushed++;
+                cleared[i] = board.getRowsCleared();
+                scores[i] = table == null ? score(board, heights, weights) : score(table, board, heights, weights);
+                while (pushed-- > 0) {
+                    board.pop();
+                }
+            }
+        }
+    }
+
     /**
      * Replace the first move for all options of the given board with the given action
      * @param board the board to test
@@ -105,47 +589,120 @@ public class FunBrain implements Brain {
      * @return the board's score
      */
     public double scoreBoard(Board newBoard) {
+        if (heights.length != newBoard.getWidth()) {
+            heights = new int[newBoard.getWidth()];
+        }
+        return score(newBoard, heights, weights);
+    }
+
+    /**
+     * Get scratch space for the column heights of the scratch board
+     * @return the scratch space
+     */
+    private int[] heights() {
+        if (heights.length != scratch.getWidth()) {
+            heights = new int[scratch.getWidth()];
+        }
+        return heights;
+    }
+
+    /**
+     * Assign the given board a score, like scoreBoard, looking it up in the given table first
+     * and storing it there if it is not found
+     * @param table the table
+     * @param newBoard the board to score, with no piece in the air
+     * @param minHeights scratch space for as many column heights as the board has
+     * @param weights the weights to score with
+     * @return the board's score
+     */
+    static double score(TranspositionTable table, TetrisBoard newBoard, int[] minHeights, Weights weights) {
+        long key = newBoard.getHash();
+        TranspositionTable.Entry entry = table.get(key);
+        if (entry != null) {
+            return entry.getScore();
+        }
+        double score = score(newBoard, minHeights, weights);
+        table.put(key, 0, 0, score, null);
+        return score;
+    }
+
+    /**
+     * Assign the given board a score with the default weights, like scoreBoard
+     * @param newBoard the board to score
+     * @param minHeights scratch space for as many column heights as the board has
+     * @return the board's score
+     */
+    static double score(Board newBoard, int[] minHeights) {
+        return score(newBoard, minHeights, Weights.DEFAULT);
+    }
+
+    /**
+     * Assign the given board a score with the given weights
+     * @param newBoard the board to score
+     * @param minHeights scratch space for as many column heights as the board has
+     * @param weights the weights to score with
+     * @return the board's score
+     */
+    static double score(Board newBoard, int[] minHeights, Weights weights) {
         int overlap = 0;
         int wallOverlap = 0;
         int gaps = 0;
+        int bumpiness = 0;
+        int wells = 0;
         // Find the minimum height of any column
-        ArrayList<Integer> minHeights = new ArrayList<>();
         double minHeightAverage;
         for(int x = 0; x < newBoard.getWidth(); x++){
-            minHeights.add(newBoard.getColumnHeight(x));
+            minHeights[x] = newBoard.getColumnHeight(x);
+        }
+        if(newBoard instanceof TetrisBoard && newBoard.getCurrentPiece() == null){
+            // With no piece in the air, the board already knows everything the scan counts;
+            // every contact between two cells is an overlap for both of them
+            BoardFeatures features = ((TetrisBoard) newBoard).getFeatures();
+            overlap = 2 * features.getContacts();
+            wallOverlap = features.getWallContacts();
+            gaps = features.getHoles();
+            bumpiness = features.getBumpiness();
+            wells = features.getWells();
         }
-        Collections.sort(minHeights);
-        minHeightAverage = (minHeights.get(0)+minHeights.get(1)+minHeights.get(2))/3.0;
-        for(int y = 0; y < newBoard.getHeight(); y++){
+        else {
+            // The walls count as being as high as the board
             for(int x = 0; x < newBoard.getWidth(); x++){
-                // Count the number of gaps, defined as empty spaces with a piece above
-                if(newBoard.getGrid(x, y) == null){
-                    if(newBoard.getColumnHeight(x) > y) gaps++;
-                    continue;
-                }
-                
-                // Count the number of overlaps between pieces
-                for(int k = 0; k < d.length; k++){
-                    int nx = x + d[k][0];
-                    int ny = y + d[k][1];
-                    if(nx < 0 || nx >= newBoard.getWidth() || ny < 0){
-                        wallOverlap++;
+                int left = x > 0 ? minHeights[x - 1] : newBoard.getHeight();
+                int right = x + 1 < newBoard.getWidth() ? minHeights[x + 1] : newBoard.getHeight();
+                wells += Math.max(Math.min(left, right) - minHeights[x], 0);
+                if(x + 1 < newBoard.getWidth()) bumpiness += Math.abs(minHeights[x] - minHeights[x + 1]);
+            }
+            for(int y = 0; y < newBoard.getHeight(); y++){
+                for(int x = 0; x < newBoard.getWidth(); x++){
+                    // Count the number of gaps, defined as empty spaces with a piece above
+                    if(newBoard.getGrid(x, y) == null){
+                        if(newBoard.getColumnHeight(x) > y) gaps++;
                         continue;
                     }
-                    if(ny >= newBoard.getHeight() || newBoard.getGrid(nx, ny) == null){
-                        continue;
+                
+                    // Count the number of overlaps between pieces
+                    for(int k = 0; k < d.length; k++){
+                        int nx = x + d[k][0];
+                        int ny = y + d[k][1];
+                        if(nx < 0 || nx >= newBoard.getWidth() || ny < 0){
+                            wallOverlap++;
+                            continue;
+                        }
+                        if(ny >= newBoard.getHeight() || newBoard.getGrid(nx, ny) == null){
+                            continue;
+                        }
+                        overlap++;
                     }
-                    overlap++;
                 }
             }
         }
+        Arrays.sort(minHeights);
+        minHeightAverage = (minHeights[0]+minHeights[1]+minHeights[2])/3.0;
         // Reward the board for overlaps and a higher min height
-        // Penalize the board for gaps and a higher max height
-        int wallWeight = 3;
-        int gapWeight = 40;
-        int maxHeightWeight = 10;
-        int minHeightWeight = 20;
-        return (overlap + wallOverlap * wallWeight - gaps * gapWeight) * (600 - (newBoard.getMaxHeight() * maxHeightWeight - minHeightAverage * minHeightWeight));
+        // Penalize the board for gaps, bumps, wells and a higher max height
+        return (overlap + wallOverlap * weights.wall - gaps * weights.gap - bumpiness * weights.bumpiness
+                - wells * weights.well)
+                * (600 - (newBoard.getMaxHeight() * weights.maxHeight - minHeightAverage * weights.minHeight));
     }
     
     
@@ -0,0 +1,241 @@
+package assignment;
+
+import java.util.Random;
+
+import assignment.Piece.PieceType;
+
+/**
+ * Game runs a game of tetris without any GUI: it owns the board, picks the pieces and applies
+ * the rules for placing pieces and ending the game. JTetris shows a Game on screen, but a Game
+ * can also be played directly by a Brain as fast as the CPU allows.
+ */
+public class Game {
+    // size of the board in blocks
+    public static final int WIDTH = 10;
+    public static final int HEIGHT = 20;
+
+    // Extra blocks at the top for pieces to start.
+    // If a piece is sticking up into this area
+    // when it has landed -- game over!
+    public static final int TOP_SPACE = 4;
+
+    // The 7 canonical tetris pieces.
+    public static final Piece[] PIECES = new Piece[] {
+        new TetrisPiece(PieceType.STICK),
+        new TetrisPiece(PieceType.SQUARE),
+        new TetrisPiece(PieceType.T),
+        new TetrisPiece(PieceType.LEFT_L),
+        new TetrisPiece(PieceType.RIGHT_L),
+        new TetrisPiece(PieceType.LEFT_DOG),
+        new TetrisPiece(PieceType.RIGHT_DOG)
+    };
+
+    private final int width, height, topSpace;
+    private TetrisBoard board;
+    private boolean gameOn;    // true if we are playing
+    private int count;        // how many pieces played so far
+    private int steps;        // how many steps the current piece has been played for
+    private PieceGenerator pieces;    // picks the new pieces
+    private final GameMetrics metrics = GameMetrics.get();
+
+    /**
+     * Construct a game on a board of the standard size
+     */
+    public Game() {
+        this(WIDTH, HEIGHT, TOP_SPACE);
+    }
+
+    /**
+     * Construct a game on a board of the given size
+     * @param width the width of the board
+     * @param height the height of the board that pieces may be placed in
+     * @param topSpace the number of rows above that for pieces to start in
+     */
+    public Game(int width, int height, int topSpace) {
+        this.width = width;
+        this.height = height;
+        this.topSpace = topSpace;
+        board = new TetrisBoard(width, height + topSpace);
+        board.events = true;
+    }
+
+    /**
+     * Reset the board and start playing with the first piece
+     */
+    public void start() {
+        start(new Random().nextLong()); // diff seq each game
+    }
+
+    /**
+     * Reset the board and start playing with the first piece, picking pieces with the given
+     * seed so that the game can be played again
+     * @param seed the seed of the random generator for new pieces
+     */
+    public void start(long seed) {
+        start(new UniformPieceGenerator(seed));
+    }
+
+    /**
+     * Reset the board and start playing with the first piece, taking pieces from the given
+     * generator
+     * @param generator the generator of new pieces
+     */
+    public void start(PieceGenerator generator) {
+        // cheap way to reset the board state
+        board = new TetrisBoard(width, height + topSpace);
+        board.events = true;
+        count = 0;
+        gameOn = true;
+        pieces = generator;
+        addNewPiece();
+    }
+
+    /**
+     * Stop playing
+     */
+    public void stop() {
+        gameOn = false;
+    }
+
+    /**
+     * Selects the next piece to use using the generator
+     * set in start().
+     * @return the next piece
+     */
+    public Piece pickNextPiece() {
+        return pieces.next();
+    }
+
+    /**
+     * Get the generator of new pieces, which can show the pieces to come
+     * @return the generator
+     */
+    public PieceGenerator getPieceGenerator() {
+        return pieces;
+    }
+
+    /**
+     * Adds a new random piece to the board, ending the game if there is no room for it.
+     * @return whether the piece was added
+     */
+    public boolean addNewPiece() {
+        count++;
+        steps = 0;
+        Piece nextPiece = pickNextPiece();
+        try {
+            board.nextPiece(nextPiece, board.getWidth() / 2 - nextPiece.getWidth() / 2, height);
+        } catch(IllegalArgumentException ex) {
+            gameOn = false;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Apply the given action to the current piece. When the piece is placed the game either
+     * ends, if the piece reaches into the top space, or continues with a new piece.
+     * @param verb the action
+     * @return the result of the action, or NO_PIECE if the game is not being played
+     */
+    public Board.Result tick(Board.Action verb) {
+        if (!gameOn) {
+            return Board.Result.NO_PIECE;
+        }
+
+        int cleared = board.getRowsCleared();
+        Board.Result result = board.move(verb);
+        metrics.recordMove(verb, result, board.getRowsCleared() - cleared);
+        switch (result) {
+            case SUCCESS:
+            case OUT_BOUNDS:
+                // The board is responsible for staying in a good state
+                break;
+            case PLACE:
+                if (board.getMaxHeight() > height) {
+                    gameOn = false;
+                }
+            case NO_PIECE:
+                if (gameOn) {
+                    addNewPiece();
+                }
+                break;
+        }
+        return result;
+    }
+
+    /**
+     * Let the given brain play one step: the piece moves down once, as it would with each tick
+     * of the timer in JBrainTetris, then the brain makes a move. A wall kick can push a piece
+     * back up, so a brain could keep a piece in the air forever; a piece that has not landed
+     * after four times the height of the board in steps is dropped instead.
+     * @param brain the brain
+     */
+    public void step(Brain brain) {
+        tick(Board.Action.DOWN);
+        if (gameOn) {
+            if (++steps > 4 * board.getHeight()) {
+                tick(Board.Action.DROP);
+                return;
+            }
+            long start = metrics.startDecision();
+            Board.Action move = brain.nextMove(board);
+            metrics.recordDecision(start, board.getMaxHeight());
+            tick(move);
+        }
+    }
+
+    /**
+     * Let the given brain play until the game ends or the given number of pieces have been
+     * played, whichever comes first.
+     * @param brain the brain
+     * @param maxPieces the number of pieces to play
+     * @return the number of pieces played
+     */
+    public int play(Brain brain, int maxPieces) {
+        while (gameOn && count <= maxPieces) {
+            step(brain);
+        }
+        return Math.min(count, maxPieces);
+    }
+
+    /**
+     * Get the board being played on
+     * @return the board
+     */
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * Get whether the game is being played
+     * @return whether the game is on
+     */
+    public boolean isGameOn() {
+        return gameOn;
+    }
+
+    /**
+     * Get the number of pieces played so far, including the current piece
+     * @return the piece count
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Get the number of rows cleared so far
+     * @return the number of rows cleared
+     */
+    public int getLines() {
+        // The board keeps count of every row it has cleared
+        return board.getRowsCleared();
+    }
+
+    /**
+     * Get the height of the board that pieces may be placed in
+     * @return the height
+     */
+    public int getHeight() {
+        return height;
+    }
+}
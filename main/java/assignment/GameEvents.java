@@ -0,0 +1,124 @@
+package assignment;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The Java Flight Recorder events of the game. A recording of them, for example with
+ * -XX:StartFlightRecording, shows each piece spawned and placed, each clear, each rotation
+ * and how many wall kicks it tried, and how long each brain decision took and how many
+ * options it weighed, next to what the JVM was doing at the time. Events that are not being
+ * recorded cost a check of a flag: an event is only made once the check of its type has
+ * passed, so that nothing is allocated while nothing is recording.
+ *
+ * Only the board a Game is played on records board events; the copies brains search on don't.
+ */
+final class GameEvents {
+
+    // The types of the events, to check whether they are being recorded before making one
+    static final EventType SPAWN = EventType.getEventType(Spawn.class);
+    static final EventType PLACE = EventType.getEventType(Place.class);
+    static final EventType ROW_CLEAR = EventType.getEventType(RowClear.class);
+    static final EventType ROTATION = EventType.getEventType(Rotation.class);
+    static final EventType TICK = EventType.getEventType(Tick.class);
+    static final EventType DECISION = EventType.getEventType(Decision.class);
+
+    private GameEvents() {
+    }
+
+    @Name("assignment.PieceSpawn")
+    @Label("Piece Spawn")
+    @Category({"Tetris", "Board"})
+    @Description("A new piece is added to the board")
+    static final class Spawn extends Event {
+        @Label("Piece")
+        String piece;
+        @Label("X")
+        int x;
+        @Label("Y")
+        int y;
+        @Label("Stack Height")
+        int stackHeight;
+    }
+
+    @Name("assignment.Place")
+    @Label("Place")
+    @Category({"Tetris", "Board"})
+    @Description("A piece is placed on the stack")
+    static final class Place extends Event {
+        @Label("Piece")
+        String piece;
+        @Label("X")
+        int x;
+        @Label("Y")
+        int y;
+        @Label("Rotation")
+        int rotation;
+        @Label("Rows Cleared")
+        int rowsCleared;
+        @Label("Stack Height")
+        int stackHeight;
+        @Label("Holes")
+        int holes;
+    }
+
+    @Name("assignment.RowClear")
+    @Label("Row Clear")
+    @Category({"Tetris", "Board"})
+    @Description("Full rows are cleared from the stack")
+    static final class RowClear extends Event {
+        @Label("Rows")
+        int rows;
+        @Label("Stack Height")
+        @Description("The height of the stack after the clear")
+        int stackHeight;
+    }
+
+    @Name("assignment.Rotation")
+    @Label("Rotation")
+    @Category({"Tetris", "Board"})
+    @Description("The current piece is rotated, trying wall kicks until one fits")
+    static final class Rotation extends Event {
+        @Label("Piece")
+        String piece;
+        @Label("Clockwise")
+        boolean clockwise;
+        @Label("Kicks Tried")
+        int kicksTried;
+        @Label("Succeeded")
+        boolean succeeded;
+    }
+
+    @Name("assignment.Tick")
+    @Label("Tick")
+    @Category({"Tetris", "Game"})
+    @Description("JTetris applies an action to the game")
+    static final class Tick extends Event {
+        @Label("Action")
+        String action;
+        @Label("Result")
+        String result;
+        @Label("Stack Height")
+        int stackHeight;
+    }
+
+    @Name("assignment.BrainDecision")
+    @Label("Brain Decision")
+    @Category({"Tetris", "Brain"})
+    @Description("A brain decides a move or a plan")
+    static final class Decision extends Event {
+        @Label("Brain")
+        String brain;
+        @Label("Candidates")
+        @Description("The number of placements weighed, or 0 if the decision was cached")
+        int candidates;
+        @Label("Move")
+        String move;
+        @Label("Stack Height")
+        int stackHeight;
+    }
+}
@@ -0,0 +1,275 @@
+package assignment;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counts what every Game in this JVM does: the moves made, by action and result, the pieces
+ * placed, the rows cleared, and how long brains take to decide. Games on many threads record
+ * into the same counters without locking. The metrics are published over JMX, where they can
+ * be watched with a tool such as JConsole, and can be turned off to leave only a check of a
+ * flag on each move.
+ *
+ * Metrics are on unless the system property tetris.metrics is set to false.
+ */
+public final class GameMetrics implements GameMetricsMXBean {
+    // The name the metrics are published under
+    public static final String NAME = "assignment:type=GameMetrics";
+    // The number of buckets of the latency histogram
+    private static final int BUCKETS = 32;
+    // Decisions are counted by stack height up to this height
+    private static final int HEIGHTS = 64;
+
+    private static final Board.Action[] ACTIONS = Board.Action.values();
+    private static final Board.Result[] RESULTS = Board.Result.values();
+
+    private volatile boolean enabled;
+    private volatile long resetTime;
+    private final LongAdder[] moves = adders(ACTIONS.length * RESULTS.length);
+    private final LongAdder[] clears = adders(4);
+    private final LongAdder[] latency = adders(BUCKETS);
+    private final LongAdder decisions = new LongAdder(), decisionNanos = new LongAdder();
+    private final LongAccumulator maxDecisionNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder[] heightDecisions = adders(HEIGHTS), heightNanos = adders(HEIGHTS);
+
+    /**
+     * Holds the metrics, so they are only made and published once they are used
+     */
+    private static final class Holder {
+        static final GameMetrics INSTANCE = new GameMetrics(
+                Boolean.parseBoolean(System.getProperty("tetris.metrics", "true")));
+
+        static {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(NAME));
+            } catch (JMException | SecurityException ex) {
+                // The metrics still count without JMX; they just can't be watched from outside
+            }
+        }
+    }
+
+    /**
+     * Construct metrics
+     * @param enabled whether to record metrics
+     */
+    GameMetrics(boolean enabled) {
+        this.enabled = enabled;
+        this.resetTime = System.nanoTime();
+    }
+
+    /**
+     * Get the metrics of this JVM, publishing them over JMX the first time
+     * @return the metrics
+     */
+    public static GameMetrics get() {
+        return Holder.INSTANCE;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder[] group : new LongAdder[][] {moves, clears, latency, heightDecisions, heightNanos}) {
+            for (LongAdder adder : group) {
+                adder.reset();
+            }
+        }
+        decisions.reset();
+        decisionNanos.reset();
+        maxDecisionNanos.reset();
+        resetTime = System.nanoTime();
+    }
+
+    /**
+     * Record a move
+     * @param action the action
+     * @param result the result of the move
+     * @param rowsCleared the number of rows the move cleared
+     */
+    void recordMove(Board.Action action, Board.Result result, int rowsCleared) {
+        if (!enabled) return;
+        moves[action.ordinal() * RESULTS.length + result.ordinal()].increment();
+        if (rowsCleared > 0) {
+            clears[Math.min(rowsCleared, clears.length) - 1].increment();
+        }
+    }
+
+    /**
+     * Get the time to measure a decision from
+     * @return the time in nanoseconds, or 0 if metrics are off
+     */
+    long startDecision() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Record a decision
+     * @param start the time returned by startDecision before the brain was asked
+     * @param stackHeight the height of the stack the brain decided on
+     */
+    void recordDecision(long start, int stackHeight) {
+        if (start == 0 || !enabled) return;
+        long nanos = System.nanoTime() - start;
+        decisions.increment();
+        decisionNanos.add(nanos);
+        maxDecisionNanos.accumulate(nanos);
+        // Bucket by the power of two of the time in microseconds
+        int bucket = 64 - Long.numberOfLeadingZeros(nanos / 1000);
+        latency[Math.min(bucket, BUCKETS - 1)].increment();
+        int h = Math.min(Math.max(stackHeight, 0), HEIGHTS - 1);
+        heightDecisions[h].increment();
+        heightNanos[h].add(nanos);
+    }
+
+    @Override
+    public double getSeconds() {
+        return (System.nanoTime() - resetTime) / 1e9;
+    }
+
+    @Override
+    public Map<String, Long> getMoveCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Board.Action action : ACTIONS) {
+            for (Board.Result result : RESULTS) {
+                long n = moves[action.ordinal() * RESULTS.length + result.ordinal()].sum();
+                if (n > 0) counts.put(action + "/" + result, n);
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Double> getMovesPerSecondByAction() {
+        double seconds = getSeconds();
+        Map<String, Double> rates = new LinkedHashMap<>();
+        for (Board.Action action : ACTIONS) {
+            long n = 0;
+            for (Board.Result result : RESULTS) {
+                n += moves[action.ordinal() * RESULTS.length + result.ordinal()].sum();
+            }
+            rates.put(action.name(), n / seconds);
+        }
+        return rates;
+    }
+
+    @Override
+    public Map<String, Double> getMovesPerSecondByResult() {
+        double seconds = getSeconds();
+        Map<String, Double> rates = new LinkedHashMap<>();
+        for (Board.Result result : RESULTS) {
+            long n = 0;
+            for (Board.Action action : ACTIONS) {
+                n += moves[action.ordinal() * RESULTS.length + result.ordinal()].sum();
+            }
+            rates.put(result.name(), n / seconds);
+        }
+        return rates;
+    }
+
+    @Override
+    public long getPiecesPlaced() {
+        long n = 0;
+        for (Board.Action action : ACTIONS) {
+            n += moves[action.ordinal() * RESULTS.length + Board.Result.PLACE.ordinal()].sum();
+        }
+        return n;
+    }
+
+    @Override
+    public long getLinesCleared() {
+        long n = 0;
+        for (int i = 0; i < clears.length; i++) {
+            n += (i + 1) * clears[i].sum();
+        }
+        return n;
+    }
+
+    @Override
+    public long[] getClearsBySize() {
+        return sums(clears, clears.length);
+    }
+
+    @Override
+    public long getDecisions() {
+        return decisions.sum();
+    }
+
+    @Override
+    public double getMeanDecisionMicros() {
+        long n = decisions.sum();
+        return n == 0 ? 0 : decisionNanos.sum() / 1e3 / n;
+    }
+
+    @Override
+    public double getMaxDecisionMicros() {
+        return maxDecisionNanos.get() / 1e3;
+    }
+
+    @Override
+    public long[] getDecisionLatencyHistogram() {
+        long[] counts = sums(latency, BUCKETS);
+        // Leave off the empty buckets at the end
+        int n = counts.length;
+        while (n > 0 && counts[n - 1] == 0) n--;
+        return sums(latency, n);
+    }
+
+    @Override
+    public double[] getMeanDecisionMicrosByHeight() {
+        long[] counts = sums(heightDecisions, HEIGHTS);
+        int n = counts.length;
+        while (n > 0 && counts[n - 1] == 0) n--;
+        double[] means = new double[n];
+        for (int h = 0; h < n; h++) {
+            means[h] = counts[h] == 0 ? 0 : heightNanos[h].sum() / 1e3 / counts[h];
+        }
+        return means;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d pieces, %d lines, %d decisions averaging %.1f us (max %.1f us)",
+                getPiecesPlaced(), getLinesCleared(), getDecisions(), getMeanDecisionMicros(),
+                getMaxDecisionMicros());
+    }
+
+    /**
+     * Make an array of counters
+     * @param n the number of counters
+     * @return the counters
+     */
+    private static LongAdder[] adders(int n) {
+        LongAdder[] adders = new LongAdder[n];
+        for (int i = 0; i < n; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * Get the totals of the first counters of an array
+     * @param adders the counters
+     * @param n the number of counters to total
+     * @return the totals
+     */
+    private static long[] sums(LongAdder[] adders, int n) {
+        long[] sums = new long[n];
+        for (int i = 0; i < n; i++) {
+            sums[i] = adders[i].sum();
+        }
+        return sums;
+    }
+}
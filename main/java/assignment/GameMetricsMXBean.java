@@ -0,0 +1,102 @@
+package assignment;
+
+import java.util.Map;
+
+/**
+ * The metrics of every Game in this JVM, as published over JMX under the name
+ * assignment:type=GameMetrics. Counts and rates are since the metrics were last reset.
+ */
+public interface GameMetricsMXBean {
+
+    /**
+     * Get whether metrics are being recorded
+     * @return whether metrics are enabled
+     */
+    boolean isEnabled();
+
+    /**
+     * Turn recording metrics on or off. When off, the game does no more than check this flag.
+     * @param enabled whether to record metrics
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Clear every count and start the rates again from now
+     */
+    void reset();
+
+    /**
+     * Get the number of seconds since the metrics were reset
+     * @return the number of seconds
+     */
+    double getSeconds();
+
+    /**
+     * Get the number of moves made for each action and result, keyed "ACTION/RESULT"
+     * @return the counts
+     */
+    Map<String, Long> getMoveCounts();
+
+    /**
+     * Get the number of moves made per second for each action
+     * @return the rates
+     */
+    Map<String, Double> getMovesPerSecondByAction();
+
+    /**
+     * Get the number of moves made per second with each result
+     * @return the rates
+     */
+    Map<String, Double> getMovesPerSecondByResult();
+
+    /**
+     * Get the number of pieces placed
+     * @return the number of pieces
+     */
+    long getPiecesPlaced();
+
+    /**
+     * Get the number of rows cleared
+     * @return the number of rows
+     */
+    long getLinesCleared();
+
+    /**
+     * Get the number of times rows were cleared, by how many were cleared at once
+     * @return the counts of clearing 1, 2, 3 and 4 rows
+     */
+    long[] getClearsBySize();
+
+    /**
+     * Get the number of decisions brains have made
+     * @return the number of decisions
+     */
+    long getDecisions();
+
+    /**
+     * Get the average time a brain took to decide
+     * @return the time in microseconds
+     */
+    double getMeanDecisionMicros();
+
+    /**
+     * Get the longest time a brain took to decide
+     * @return the time in microseconds
+     */
+    double getMaxDecisionMicros();
+
+    /**
+     * Get a histogram of the time brains took to decide. Bucket 0 counts decisions that took
+     * under a microsecond, and bucket i > 0 those that took from 2^(i-1) up to 2^i microseconds;
+     * the last bucket also counts everything longer.
+     * @return the counts of each bucket
+     */
+    long[] getDecisionLatencyHistogram();
+
+    /**
+     * Get the average time a brain took to decide for each height of the stack, to show how
+     * deciding slows as the stack grows
+     * @return the times in microseconds, indexed by the height of the stack
+     */
+    double[] getMeanDecisionMicrosByHeight();
+}
@@ -0,0 +1,253 @@
+package assignment;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+/**
+ * GameRunner plays many headless games at once across all cores, each with its own brain and
+ * its own seed. The seeds of the games are all derived from one master seed, so a run can be
+ * repeated exactly and two brains can be compared on the same sequences of pieces.
+ */
+public final class GameRunner {
+    // Games are split into tasks of at most this many
+    private static final int BATCH = 4;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Construct a runner that uses every core
+     */
+    public GameRunner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Construct a runner that uses the given number of threads
+     * @param parallelism the number of threads
+     */
+    public GameRunner(int parallelism) {
+        if(parallelism < 1) throw new IllegalArgumentException("parallelism must be positive");
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Play the given number of games on boards of the standard size
+     * @param brains makes a new brain for each game
+     * @param games the number of games
+     * @param maxPieces the number of pieces after which a game is stopped
+     * @param seed the master seed
+     * @return the results of the games
+     */
+    public Summary run(Supplier<? extends Brain> brains, int games, int maxPieces, long seed) {
+        return run(brains, UniformPieceGenerator::new, games, maxPieces, seed);
+    }
+
+    /**
+     * Play the given number of games on boards of the standard size, with pieces from the
+     * given kind of generator
+     * @param brains makes a new brain for each game
+     * @param generators makes the generator of pieces for each game from its seed
+     * @param games the number of games
+     * @param maxPieces the number of pieces after which a game is stopped
+     * @param seed the master seed
+     * @return the results of the games
+     */
+    public Summary run(Supplier<? extends Brain> brains, LongFunction<? extends PieceGenerator> generators,
+                       int games, int maxPieces, long seed) {
+        if(games < 0) throw new IllegalArgumentException("games must not be negative");
+        long[] seeds = seeds(seed, games);
+        Summary summary = new Summary(games);
+        long start = System.nanoTime();
+        pool.invoke(new Batch(brains, generators, maxPieces, seeds, summary, 0, games));
+        summary.nanos = System.nanoTime() - start;
+        return summary;
+    }
+
+    /**
+     * Stop the threads of this runner once the games being run are done
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Get the seed of each game of a run. Game i always gets the same seed for a given master
+     * seed, however many games are run.
+     * @param seed the master seed
+     * @param games the number of games
+     * @return the seeds
+     */
+    public static long[] seeds(long seed, int games) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] seeds = new long[games];
+        for(int i = 0; i < games; i++) {
+            seeds[i] = random.nextLong();
+        }
+        return seeds;
+    }
+
+    /**
+     * Play one game
+     * @param brain the brain
+     * @param maxPieces the number of pieces after which the game is stopped
+     * @param seed the seed of the game
+     * @return the game once it is over
+     */
+    public static Game play(Brain brain, int maxPieces, long seed) {
+        return play(brain, new UniformPieceGenerator(seed), maxPieces);
+    }
+
+    /**
+     * Play one game
+     * @param brain the brain
+     * @param generator the generator of pieces
+     * @param maxPieces the number of pieces after which the game is stopped
+     * @return the game once it is over
+     */
+    public static Game play(Brain brain, PieceGenerator generator, int maxPieces) {
+        Game game = new Game();
+        game.start(generator);
+        game.play(brain, maxPieces);
+        return game;
+    }
+
+    /**
+     * Play games with FunBrain and print a summary. The arguments are the number of games,
+     * the master seed, the number of pieces per game and "bag" to deal pieces from a 7-bag,
+     * all optional.
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        int maxPieces = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        boolean bag = args.length > 3 && args[3].equals("bag");
+        GameRunner runner = new GameRunner();
+        System.out.println(runner.run(FunBrain::new,
+                bag ? BagPieceGenerator::new : UniformPieceGenerator::new, games, maxPieces, seed));
+        runner.shutdown();
+    }
+
+    /**
+     * Plays a range of games, splitting it in half until it is small enough
+     */
+    private static final class Batch extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Supplier<? extends Brain> brains;
+        private final LongFunction<? extends PieceGenerator> generators;
+        private final int maxPieces;
+        private final long[] seeds;
+        private final Summary summary;
+        private final int from, to;
+
+        Batch(Supplier<? extends Brain> brains, LongFunction<? extends PieceGenerator> generators,
+              int maxPieces, long[] seeds, Summary summary, int from, int to) {
+            this.brains = brains;
+            this.generators = generators;
+            this.maxPieces = maxPieces;
+            this.seeds = seeds;
+            this.summary = summary;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from > BATCH) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Batch(brains, generators, maxPieces, seeds, summary, from, mid),
+                          new Batch(brains, generators, maxPieces, seeds, summary, mid, to));
+                return;
+            }
+            for(int i = from; i < to; i++) {
+                Game game = play(brains.get(), generators.apply(seeds[i]), maxPieces);
+                // Each game writes only its own slots, and invoke() publishes them
+                summary.pieces[i] = Math.min(game.getCount(), maxPieces);
+                summary.lines[i] = game.getLines();
+            }
+        }
+    }
+
+    /**
+     * The results of a run: the pieces played and rows cleared in each game, and how long the
+     * whole run took.
+     */
+    public static final class Summary {
+        private final int[] pieces, lines;
+        private long nanos;
+
+        /**
+         * Construct an empty summary
+         * @param games the number of games
+         */
+        Summary(int games) {
+            pieces = new int[games];
+            lines = new int[games];
+        }
+
+        /**
+         * Get the number of games played
+         * @return the number of games
+         */
+        public int getGames() {
+            return pieces.length;
+        }
+
+        /**
+         * Get the number of pieces played in a game
+         * @param i the index of the game
+         * @return the number of pieces
+         */
+        public int getPieces(int i) {
+            return pieces[i];
+        }
+
+        /**
+         * Get the number of rows cleared in a game
+         * @param i the index of the game
+         * @return the number of rows
+         */
+        public int getLines(int i) {
+            return lines[i];
+        }
+
+        /**
+         * Get the number of pieces played in all games
+         * @return the number of pieces
+         */
+        public long getTotalPieces() {
+            long total = 0;
+            for(int p : pieces) total += p;
+            return total;
+        }
+
+        /**
+         * Get the number of rows cleared in all games
+         * @return the number of rows
+         */
+        public long getTotalLines() {
+            long total = 0;
+            for(int l : lines) total += l;
+            return total;
+        }
+
+        /**
+         * Get how long the run took
+         * @return the wall time in nanoseconds
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = nanos / 1e9;
+            return String.format("%d games, %d pieces, %d lines in %.2f seconds (%.0f pieces/s)",
+                    getGames(), getTotalPieces(), getTotalLines(), seconds,
+                    seconds > 0 ? getTotalPieces() / seconds : 0.0);
+        }
+    }
+}
@@ -2,15 +2,49 @@ package assignment;
 
 
 import javax.swing.*;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class JBrainTetris extends JTetris{
 
+    // The brain playing the game
+    protected Brain brain;
+    // The brain's plan for the current piece and how much of it has been done, the piece
+    // count it was made at, and the position and rotation index it expects before each move;
+    // the row is only expected of a plan made for the piece falling before each move
+    private List<Board.Action> plan;
+    private int planned;
+    private int planPiece;
+    private boolean planGravity;
+    private int[] planX, planY, planRotation;
+    // Brains decide on this thread, so that a slow decision doesn't hold up the screen
+    private final ExecutorService planner = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "brain");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // The number of the last plan asked for, and whether it is still being made
+    private int planRequest;
+    private boolean planning;
+
+    // Shows how fast the game is going, measured over each second
+    protected JLabel rateLabel;
+    private final Timer rateTimer = new Timer(1000, e -> updateRate());
+    private long rateTime;
+    private int rateCount, rateLines;
+
     /**
      * Create a GUI with the JBrainTetris to allow the Brain to make moves
      * @param args the command-line arguments
      */
     public static void main(String[] args) {
-        createGUI(new JBrainTetris());
+        JBrainTetris tetris = new JBrainTetris();
+        if (args.length > 0 && args[0].equals("anytime")) {
+            // Search as deep as each tick allows, seeing the next piece
+            tetris.setBrain(new AnytimeBrain(tetris.game, 1));
+        }
+        createGUI(tetris);
     }
 
     /**
@@ -47,11 +81,232 @@ public class JBrainTetris extends JTetris{
         registerKeyboardAction(e -> {},
                 "drop", KeyStroke.getKeyStroke('w'), WHEN_IN_FOCUSED_WINDOW);
         
-        // Request the next move from the brain after every down tick
-        FunBrain brain = new FunBrain();
-        timer = new Timer(DELAY, e -> {
-            tick(Board.Action.DOWN);
-            tick(brain.nextMove(board));
+        setBrain(new FunBrain());
+    }
+
+    /**
+     * Starts a game, dropping any plan made or being made for the last one.
+     * @param seed the seed of the random generator for new pieces
+     */
+    @Override
+    public void startGame(long seed) {
+        planRequest++;
+        planning = false;
+        plan = null;
+        super.startGame(seed);
+        if (game.isGameOn()) {
+            rateTime = System.nanoTime();
+            rateCount = game.getCount();
+            rateLines = game.getLines();
+            rateTimer.start();
+        }
+    }
+
+    /**
+     * Stops the game, showing how fast it went over its last second.
+     */
+    @Override
+    public void stopGame() {
+        super.stopGame();
+        if (rateTimer.isRunning()) {
+            rateTimer.stop();
+            updateRate();
+        }
+    }
+
+    /**
+     * Shows the pieces and lines a second since the last time they were shown
+     */
+    private void updateRate() {
+        long now = System.nanoTime();
+        double seconds = (now - rateTime) / 1e9;
+        if (rateLabel == null || seconds <= 0) {
+            return;
+        }
+        rateLabel.setText(String.format("%.1f pieces/s, %.1f lines/s",
+                (game.getCount() - rateCount) / seconds, (game.getLines() - rateLines) / seconds));
+        rateTime = now;
+        rateCount = game.getCount();
+        rateLines = game.getLines();
+    }
+
+    /**
+     * Set the brain that plays the game. A brain that can plan for the piece falling before
+     * each of its moves is told to, since that is how its plans are followed.
+     * @param brain the brain
+     */
+    public void setBrain(Brain brain) {
+        if (brain instanceof AnytimeBrain) {
+            ((AnytimeBrain) brain).setGravity(true);
+            ((AnytimeBrain) brain).setTickDelay(getTickDelay());
+        } else if (brain instanceof FunBrain) {
+            ((FunBrain) brain).setGravity(true);
+        }
+        this.brain = brain;
+        planRequest++;
+        planning = false;
+        plan = null;
+    }
+
+    /**
+     * Moves the piece down, then makes the next move of the brain's plan. Without a plan for
+     * the piece where it is, the game waits for the brain rather than letting the piece fall
+     * unplanned; the steps held up are taken as soon as the plan is handed back.
+     * @return whether the game advanced, or is waiting for the brain
+     */
+    @Override
+    protected boolean step() {
+        if (!planReady()) {
+            requestPlan();
+            return false;
+        }
+        Board.Action move = plan.get(planned++);
+        int piece = game.getCount();
+        tick(Board.Action.DOWN);
+        // The fall may have placed the piece before the move
+        if (game.getCount() == piece) {
+            tick(move);
+        }
+        // Start on the plan for a new piece while the rest of the frame is run and drawn
+        if (!planReady()) {
+            requestPlan();
+        }
+        return true;
+    }
+
+    /**
+     * Updates the length of a step to reflect the current setting of the speed slider,
+     * and gives a brain that works to a deadline the time of a step.
+     */
+    @Override
+    public void updateTimer() {
+        super.updateTimer();
+        if (brain instanceof AnytimeBrain) {
+            ((AnytimeBrain) brain).setTickDelay(getTickDelay());
+        }
+    }
+
+    /**
+     * Creates the panel of UI controls, with the speed of the game
+     * under the piece count and a checkbox for turbo mode, which
+     * lets the brain play as fast as it can to see how it does over
+     * many pieces.
+     */
+    @Override
+    public java.awt.Container createControlPanel() {
+        java.awt.Container panel = super.createControlPanel();
+
+        // RATE, under the count
+        rateLabel = new JLabel(" ");
+        panel.add(rateLabel, 1);
+
+        // TURBO checkbox
+        JCheckBox turboBox = new JCheckBox("Turbo");
+        turboBox.addActionListener(e -> setTurbo(turboBox.isSelected()));
+        panel.add(turboBox);
+
+        return panel;
+    }
+
+    /**
+     * Check whether the plan has a next step for the current piece, where it is now
+     * @return whether the plan can be followed
+     */
+    private boolean planReady() {
+        Board board = game.getBoard();
+        Piece piece = board.getCurrentPiece();
+        return plan != null && planned < plan.size() && planPiece == game.getCount()
+                && piece != null && piece.getRotationIndex() == planRotation[planned]
+                && board.getCurrentPieceX() == planX[planned]
+                && (!planGravity || board.getCurrentPieceY() == planY[planned]);
+    }
+
+    /**
+     * Ask the brain for a plan for the current piece on the planning thread, unless a plan is
+     * already being made. The brain decides on a copy of the board, which the game never
+     * changes, and the plan is handed back to this thread when it is done.
+     */
+    private void requestPlan() {
+        Board board = game.getBoard();
+        if (planning || !game.isGameOn() || board.getCurrentPiece() == null) {
+            return;
+        }
+        planning = true;
+        int request = ++planRequest;
+        int piece = game.getCount();
+        Board snapshot = new TetrisBoard(board);
+        Brain planBrain = brain;
+        boolean gravity = (planBrain instanceof AnytimeBrain && ((AnytimeBrain) planBrain).isGravity())
+                || (planBrain instanceof FunBrain && ((FunBrain) planBrain).isGravity());
+        planner.execute(() -> {
+            List<Board.Action> moves;
+            GameMetrics metrics = GameMetrics.get();
+            long start = metrics.startDecision();
+            try {
+                moves = planBrain.plan(snapshot);
+            } catch (RuntimeException ex) {
+                // Place the piece where it is headed rather than stop the game
+                moves = List.of(Board.Action.DROP);
+            }
+            metrics.recordDecision(start, snapshot.getMaxHeight());
+            List<Board.Action> made = moves;
+            SwingUtilities.invokeLater(() -> planMade(request, piece, snapshot, made, gravity));
         });
     }
+
+    /**
+     * Take a plan handed back by the planning thread, unless a new game or brain has been
+     * started since it was asked for, and take the steps that waited for it
+     * @param request the number of the request
+     * @param piece the piece count the plan was asked for at
+     * @param snapshot the board the plan was made on
+     * @param moves the plan
+     * @param gravity whether the plan was made for the piece falling before each move
+     */
+    private void planMade(int request, int piece, Board snapshot, List<Board.Action> moves,
+                          boolean gravity) {
+        if (request != planRequest) {
+            return;
+        }
+        planning = false;
+        acceptPlan(piece, snapshot, moves, gravity);
+        if (timer.isRunning()) {
+            frame();
+        }
+    }
+
+    /**
+     * Take a plan made on the planning thread, unless the game has moved on to another piece
+     * since it was asked for, and work out where the brain meant the piece to be before each
+     * of its moves. A piece that falls somewhere the plan didn't expect, say because a fall
+     * left a shift blocked, stops matching the plan, and the brain is asked again.
+     * @param piece the piece count the plan was asked for at
+     * @param snapshot the board the plan was made on
+     * @param moves the plan
+     * @param gravity whether the plan was made for the piece falling before each move
+     */
+    private void acceptPlan(int piece, Board snapshot, List<Board.Action> moves, boolean gravity) {
+        if (moves.isEmpty() || piece != game.getCount() || !game.isGameOn()) {
+            return;
+        }
+        plan = moves;
+        planned = 0;
+        planPiece = piece;
+        planGravity = gravity;
+        planX = new int[plan.size()];
+        planY = new int[plan.size()];
+        planRotation = new int[plan.size()];
+        Board expected = new TetrisBoard(snapshot);
+        for (int i = 0; i < plan.size(); i++) {
+            planX[i] = expected.getCurrentPieceX();
+            planY[i] = expected.getCurrentPieceY();
+            planRotation[i] = expected.getCurrentPiece().getRotationIndex();
+            if ((gravity && expected.move(Board.Action.DOWN) == Board.Result.PLACE)
+                    || expected.move(plan.get(i)) == Board.Result.PLACE) {
+                // The plan is done once the piece is placed
+                plan = plan.subList(0, i + 1);
+                break;
+            }
+        }
+    }
 }
@@ -1,13 +1,12 @@
 package assignment;
 
 import java.awt.*;
+import java.awt.image.BufferedImage;
 import javax.swing.*;
 import java.util.*;
 import java.awt.event.*;
 import javax.swing.event.*;
 
-import assignment.Piece.PieceType;
-
 
 /**
  * JTetris presents a tetris game in a window.
@@ -18,15 +17,15 @@ import assignment.Piece.PieceType;
 public class JTetris extends JComponent {
     private static final long serialVersionUID = 1L;
     // size of the board in blocks
-    public static final int WIDTH = 10;
-    public static final int HEIGHT = 20;
+    public static final int WIDTH = Game.WIDTH;
+    public static final int HEIGHT = Game.HEIGHT;
 
     public static final int PIXELS = 16;
 
     // Extra blocks at the top for pieces to start.
     // If a piece is sticking up into this area
     // when it has landed -- game over!
-    public static final int TOP_SPACE = 4;
+    public static final int TOP_SPACE = Game.TOP_SPACE;
 
     /**
      * Creates a Window,
@@ -78,42 +77,50 @@ public class JTetris extends JComponent {
     // Is drawing optimized
     protected boolean DRAW_OPTIMIZE = true;
 
-    // Board data structure
-    protected Board board;
-
-    // State of the game
-    protected boolean gameOn;    // true if we are playing
-    protected int count;        // how many pieces played so far
+    // The locked stack, drawn once and copied to the screen until a piece is placed, along
+    // with the board it was drawn from
+    private BufferedImage stackImage;
+    private boolean stackDirty = true;
+    private Board stackBoard;
+    // The rows changed since the last frame was drawn
+    private int dirtyLo = Integer.MAX_VALUE, dirtyHi = Integer.MIN_VALUE;
+
+    // The game advances in steps of a fixed length of time, set by the speed slider, and is
+    // drawn once a frame however many steps were taken
+    private int tickDelay = DELAY;
+    private long lastFrame;
+    private long behind;    // nanoseconds of steps not yet taken
+    // In turbo mode the game takes steps as fast as it can and is drawn less often
+    private boolean turbo;
+    private long lastDraw;
+
+    // The game being shown, which owns the board
+    protected Game game;
+
+    // State of the display
     protected long startTime;    // used to measure elapsed time
-    protected Random random;    // the random generator for new pieces
 
     // Controls
     protected JLabel countLabel;
     protected JLabel timeLabel;
     protected JButton startButton;
     protected JButton stopButton;
-    protected javax.swing.Timer timer;
+    protected javax.swing.Timer timer;    // fires once a frame
     protected JSlider speed;
 
-    public final int DELAY = 400;    // milliseconds per tick
+    public static final int DELAY = 400;    // milliseconds per tick
+    public static final int FPS = 60;    // frames drawn per second at most
+    private static final long FRAME_NANOS = 1_000_000_000L / FPS;
+    public static final int TURBO_FPS = 10;    // frames drawn per second in turbo mode
+    private static final long TURBO_FRAME_NANOS = 1_000_000_000L / TURBO_FPS;
 
     // The 7 canonical tetris pieces.
-    public final Piece[] PIECES = new Piece[] {
-        new TetrisPiece(PieceType.STICK),
-        new TetrisPiece(PieceType.SQUARE),
-        new TetrisPiece(PieceType.T),
-        new TetrisPiece(PieceType.LEFT_L),
-        new TetrisPiece(PieceType.RIGHT_L),
-        new TetrisPiece(PieceType.LEFT_DOG),
-        new TetrisPiece(PieceType.RIGHT_DOG)
-    };
+    public final Piece[] PIECES = Game.PIECES;
 
     JTetris() {
         super();
         setPreferredSize(new Dimension(WIDTH*PIXELS+2, (HEIGHT+TOP_SPACE)*PIXELS+2));
-        gameOn = false;
-
-        board = new TetrisBoard(WIDTH, HEIGHT + TOP_SPACE);
+        game = new Game(WIDTH, HEIGHT, TOP_SPACE);
 
         /**
          * Register key handlers that call
@@ -168,11 +175,11 @@ public class JTetris extends JComponent {
         },
         "drop", KeyStroke.getKeyStroke('w'), WHEN_IN_FOCUSED_WINDOW);
 
-        // Create the Timer object and have it send
-        // tick(DOWN) periodically
-        timer = new javax.swing.Timer(DELAY, new ActionListener() {
+        // Create the Timer object and have it run
+        // the game and draw it once a frame
+        timer = new javax.swing.Timer((int) (FRAME_NANOS / 1_000_000), new ActionListener() {
             public void actionPerformed(ActionEvent e) {
-                tick(Board.Action.DOWN);
+                frame();
             }
         });
     }
@@ -182,20 +189,30 @@ public class JTetris extends JComponent {
      * so the game is happening.
      */
     public void startGame() {
-        // cheap way to reset the board state
-        board = new TetrisBoard(WIDTH, HEIGHT + TOP_SPACE);
+        startGame(new Random().nextLong()); // diff seq each game
+    }
+
+    /**
+     * Starts a game whose pieces are picked with the given seed,
+     * so that a game can be replayed.
+     * @param seed the seed of the random generator for new pieces
+     */
+    public void startGame(long seed) {
+        game.start(seed);
+        stackDirty = true;
 
         // draw the new board state once
         repaint();
 
-        count = 0;
-        gameOn = true;
-
-        random = new Random(); // diff seq each game
-
         enableButtons();
         timeLabel.setText(" ");
-        addNewPiece();
+        countLabel.setText(Integer.toString(game.getCount()));
+        if (!game.isGameOn()) {
+            stopGame();
+            return;
+        }
+        lastFrame = System.nanoTime();
+        behind = 0;
         timer.start();
         startTime = System.currentTimeMillis();
     }
@@ -205,15 +222,15 @@ public class JTetris extends JComponent {
      * based on the gameOn state.
      */
     private void enableButtons() {
-        startButton.setEnabled(!gameOn);
-        stopButton.setEnabled(gameOn);
+        startButton.setEnabled(!game.isGameOn());
+        stopButton.setEnabled(game.isGameOn());
     }
 
     /**
      * Stops the game.
      */
     public void stopGame() {
-        gameOn = false;
+        game.stop();
         enableButtons();
         timer.stop();
 
@@ -221,27 +238,87 @@ public class JTetris extends JComponent {
         timeLabel.setText(Double.toString(delta/100.0) + " seconds");
     }
 
+    /**
+     * Runs one frame: takes as many steps as the time since
+     * the last frame calls for, then draws the rows they changed.
+     * Steps may take at most half of the frame; if they fall
+     * further behind than that, the game slows down instead
+     * of trying to catch up. In turbo mode steps are taken
+     * for most of the frame, and only some frames are drawn.
+     * A game that was waiting can run a frame early, to take
+     * the steps that were held up.
+     */
+    protected void frame() {
+        long now = System.nanoTime();
+        behind += now - lastFrame;
+        lastFrame = now;
+        long stepNanos = turbo ? 0 : tickDelay * 1_000_000L;
+        long deadline = now + (turbo ? FRAME_NANOS * 3 / 4 : FRAME_NANOS / 2);
+        while (game.isGameOn() && behind >= stepNanos) {
+            if (!step()) {
+                // The game is waiting; don't save up steps for when it is ready
+                behind = Math.min(behind, stepNanos);
+                break;
+            }
+            behind -= stepNanos;
+            if (System.nanoTime() > deadline) {
+                behind = Math.min(behind, stepNanos);
+                break;
+            }
+        }
+        if (!turbo || now - lastDraw >= TURBO_FRAME_NANOS || !game.isGameOn()) {
+            flushRepaint();
+            lastDraw = now;
+        }
+    }
+
+    /**
+     * Turns turbo mode on or off. In turbo mode the game
+     * runs as fast as it can, whatever the speed slider is
+     * set to, and is drawn TURBO_FPS times a second.
+     * @param turbo whether to run in turbo mode
+     */
+    public void setTurbo(boolean turbo) {
+        this.turbo = turbo;
+        behind = 0;
+        lastFrame = System.nanoTime();
+    }
+
+    /**
+     * Checks whether the game is running in turbo mode.
+     * @return whether the game is in turbo mode
+     */
+    public boolean isTurbo() {
+        return turbo;
+    }
+
+    /**
+     * Advances the game by one step of time: the piece
+     * moves down one square.
+     * @return whether the game advanced, or is waiting instead
+     */
+    protected boolean step() {
+        tick(Board.Action.DOWN);
+        return true;
+    }
+
     /**
      * Selects the next piece to use using the random generator
      * set in startGame().
      */
     public Piece pickNextPiece() {
-        return PIECES[random.nextInt(PIECES.length)];
+        return game.pickNextPiece();
     }
 
     /**
      * Adds a new random piece to the board.
      */
     public void addNewPiece() {
-        count++;
-        Piece nextPiece = pickNextPiece();
-        try {
-            board.nextPiece(nextPiece, new Point(board.getWidth() / 2 - nextPiece.getWidth() / 2, HEIGHT));
-        } catch(IllegalArgumentException ex) {
+        if (!game.addNewPiece()) {
             stopGame();
             return;
         }
-        countLabel.setText(Integer.toString(count));
+        countLabel.setText(Integer.toString(game.getCount()));
     }
 
     /**
@@ -251,28 +328,57 @@ public class JTetris extends JComponent {
      * the piece down one square.
      */
     public void tick(Board.Action verb) {
-        if (!gameOn) {
+        if (!game.isGameOn()) {
             return;
         }
 
-        Board.Result result = board.move(verb);
+        GameEvents.Tick event = null;
+        if (GameEvents.TICK.isEnabled()) {
+            event = new GameEvents.Tick();
+            event.begin();
+        }
+        Board board = game.getBoard();
+        int lo = pieceBottom(board), hi = pieceTop(board);
+        if (verb == Board.Action.DROP && board.getCurrentPiece() != null) {
+            // A dropped piece lands below the rows it was in
+            lo = Math.min(lo, board.dropHeight(board.getCurrentPiece(), board.getCurrentPieceX()));
+        }
+        int lines = game.getLines();
+        // The game places pieces, adds new ones and decides when it is over
+        Board.Result result = game.tick(verb);
         switch (result) {
           case SUCCESS:
           case OUT_BOUNDS:
-            // The board is responsible for staying in a good state
             break;
           case PLACE:
-              if (board.getMaxHeight() > HEIGHT) {
-                  stopGame();
-              }
           case NO_PIECE:
-              if (gameOn) {
-                  addNewPiece();
-              }
+            stackDirty = true;
+            if (!game.isGameOn()) {
+                stopGame();
+            }
             break;
         }
 
-        repaint();
+        // Repaint the rows the piece left and the rows it is in now; a clear moves every
+        // row above the piece down
+        if (game.getLines() != lines) {
+            hi = board.getHeight() - 1;
+        }
+        dirtyLo = Math.min(dirtyLo, Math.min(lo, pieceBottom(board)));
+        dirtyHi = Math.max(dirtyHi, Math.max(hi, pieceTop(board)));
+        // The timer draws the changes once a frame; without it, draw them now
+        if (!timer.isRunning()) {
+            flushRepaint();
+        }
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.action = verb.name();
+                event.result = result.name();
+                event.stackHeight = game.getBoard().getMaxHeight();
+                event.commit();
+            }
+        }
     }
 
     /**
@@ -287,12 +393,12 @@ public class JTetris extends JComponent {
 
     // width in pixels of a block
     private final float dX() {
-        return( ((float)(getWidth()-2)) / board.getWidth() );
+        return( ((float)(getWidth()-2)) / game.getBoard().getWidth() );
     }
 
     // height in pixels of a block
     private final float dY() {
-        return( ((float)(getHeight()-2)) / board.getHeight() );
+        return( ((float)(getHeight()-2)) / game.getBoard().getHeight() );
     }
 
     // the x pixel coord of the left side of a block
@@ -305,14 +411,106 @@ public class JTetris extends JComponent {
         return(Math.round(getHeight() -1 - (y+1)*dY()));
     }
 
+    /**
+     * Get the lowest row the current piece's bounding box covers
+     * @param board the board
+     * @return the row, or Integer.MAX_VALUE if there is no piece
+     */
+    private static int pieceBottom(Board board) {
+        return board.getCurrentPiece() == null ? Integer.MAX_VALUE : board.getCurrentPieceY();
+    }
+
+    /**
+     * Get the highest row the current piece's bounding box covers
+     * @param board the board
+     * @return the row, or Integer.MIN_VALUE if there is no piece
+     */
+    private static int pieceTop(Board board) {
+        Piece piece = board.getCurrentPiece();
+        return piece == null ? Integer.MIN_VALUE : board.getCurrentPieceY() + piece.getHeight() - 1;
+    }
+
+    /**
+     * Ask for the rows changed since the last frame to be repainted, and show the piece count
+     */
+    private void flushRepaint() {
+        countLabel.setText(Integer.toString(game.getCount()));
+        repaintRows(dirtyLo, dirtyHi);
+        dirtyLo = Integer.MAX_VALUE;
+        dirtyHi = Integer.MIN_VALUE;
+    }
+
+    /**
+     * Ask for the given rows of the board to be repainted
+     * @param lo the lowest row
+     * @param hi the highest row
+     */
+    private void repaintRows(int lo, int hi) {
+        lo = Math.max(lo, 0);
+        hi = Math.min(hi, game.getBoard().getHeight() - 1);
+        if (lo > hi) return;
+        // Rows are drawn from the bottom up, so the highest row is at the top
+        int top = yPixel(hi), bottom = yPixel(lo - 1);
+        repaint(0, top, getWidth(), bottom - top + 1);
+    }
+
     /**
      * Draws the current board with a 1 pixel border
      * around the whole thing. Uses the pixel helpers
      * above to map board coords to pixel coords.
-     * Draws rows that are filled all the way across in green.
+     * The locked stack is drawn from an image that is only
+     * redrawn when a piece is placed, and the current piece
+     * is drawn over it.
      */
     public void paintComponent(Graphics g) {
+        Board board = game.getBoard();
+        if (getWidth() <= 0 || getHeight() <= 0) {
+            return;
+        }
+
+        if (!DRAW_OPTIMIZE) {
+            drawStack(g, board);
+        }
+        else {
+            if (stackImage == null || stackImage.getWidth() != getWidth()
+                    || stackImage.getHeight() != getHeight()) {
+                stackImage = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_ARGB);
+                stackDirty = true;
+            }
+            if (stackDirty || stackBoard != board) {
+                Graphics2D ig = stackImage.createGraphics();
+                ig.setComposite(AlphaComposite.Clear);
+                ig.fillRect(0, 0, getWidth(), getHeight());
+                ig.setComposite(AlphaComposite.SrcOver);
+                ig.setColor(getForeground());
+                drawStack(ig, board);
+                ig.dispose();
+                stackDirty = false;
+                stackBoard = board;
+            }
+            g.drawImage(stackImage, 0, 0, null);
+        }
+
+        // Draw the current piece over the stack
+        Piece currentPiece = board.getCurrentPiece();
+        if (currentPiece != null) {
+            final int dx = Math.round(dX() - 2);
+            final int dy = Math.round(dY() - 2);
+            int pieceX = board.getCurrentPieceX(), pieceY = board.getCurrentPieceY();
+            g.setColor(currentPiece.getType().getColor());
+            for (Point offset : currentPiece.getBody()) {
+                g.fillRect(xPixel(pieceX + offset.x) + 1, yPixel(pieceY + offset.y) + 1, dx, dy);
+            }
+        }
+    }
 
+    /**
+     * Draws the border, the line separating the top
+     * and the locked stack, leaving out the current piece.
+     * @param g the graphics to draw with
+     * @param board the board
+     */
+    private void drawStack(Graphics g, Board board) {
         // Draw a rect around the whole thing
         g.drawRect(0, 0, getWidth() - 1, getHeight() - 1);
 
@@ -320,50 +518,22 @@ public class JTetris extends JComponent {
         int spacerY = yPixel(board.getHeight() - TOP_SPACE - 1);
         g.drawLine(0, spacerY, getWidth() - 1, spacerY);
 
-        // check if we are drawing with clipping
-        Rectangle clip = null;
-        if (DRAW_OPTIMIZE) {
-            clip = g.getClipBounds();
-        }
-
         // Factor a few things out to help the optimizer
         final int dx = Math.round(dX() - 2);
         final int dy = Math.round(dY() - 2);
         final int bWidth = board.getWidth();
         final int bHeight = board.getHeight();
 
-        // Keep a set of the piece positions, so they can be rendered specially.
-        Set<Point> currentPiecePositions = new HashSet<>();
-        Piece currentPiece = board.getCurrentPiece();
-        if(currentPiece != null) {
-            Point position = board.getCurrentPiecePosition();
-            for(Point offset : currentPiece.getBody()) {
-                currentPiecePositions.add(new Point(position.x + offset.x, position.y + offset.y));
-            }
-        }
-
         // Loop through and draw all the blocks: left-right, bottom-top
         for (int x = 0; x < bWidth; x++) {
             int left = xPixel(x); // the left pixel
 
-            // right pixel (useful for clip optimization)
-            int right = xPixel(x + 1) - 1;
-
-            // skip this x if it is outside the clip rect
-            if (DRAW_OPTIMIZE && clip != null) {
-                if ((right < clip.x) || (left >= (clip.x + clip.width))) {
-                    continue;
-                }
-            }
-
             // draw from 0 up to the col height
             for (int y = 0; y < bHeight; y++) {
                 Piece.PieceType pieceType = board.getGrid(x, y);
-                
-                // Special case if this position is part of the currently active piece.
-                if(currentPiecePositions.contains(new Point(x, y))) pieceType = currentPiece.getType();
 
-                if (pieceType != null) {
+                // The grid shows the current piece, which is drawn on its own
+                if (pieceType != null && !isPieceCell(board, x, y)) {
                     // +1 to leave a white border
                     g.setColor(pieceType.getColor());
                     g.fillRect(left + 1, yPixel(y) + 1, dx, dy);
@@ -373,12 +543,42 @@ public class JTetris extends JComponent {
     }
 
     /**
-     * Updates the timer to reflect the current setting of the
-     * speed slider.
+     * Checks whether the current piece covers the given cell.
+     * @param board the board
+     * @param x the x value of the cell
+     * @param y the y value of the cell
+     * @return whether the cell is part of the current piece
+     */
+    private static boolean isPieceCell(Board board, int x, int y) {
+        Piece piece = board.getCurrentPiece();
+        if (piece == null) {
+            return false;
+        }
+        int px = x - board.getCurrentPieceX(), py = y - board.getCurrentPieceY();
+        for (Point offset : piece.getBody()) {
+            if (offset.x == px && offset.y == py) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Updates the length of a step to reflect the current
+     * setting of the speed slider. At the fastest setting
+     * steps take no time, and the game runs as fast as it can.
      */
     public void updateTimer() {
         double value = ((double)speed.getValue())/speed.getMaximum();
-        timer.setDelay((int)(DELAY - value*DELAY));
+        tickDelay = (int)(DELAY - value*DELAY);
+    }
+
+    /**
+     * Gets the length of a step of the game.
+     * @return the length in milliseconds
+     */
+    public int getTickDelay() {
+        return tickDelay;
     }
 
     /**
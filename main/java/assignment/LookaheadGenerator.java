@@ -0,0 +1,92 @@
+package assignment;
+
+import java.util.SplittableRandom;
+
+/**
+ * The parts of a PieceGenerator shared by the uniform and 7-bag generators: the random
+ * generator, and a queue of the pieces that have been looked at but not taken yet. Taking
+ * and looking at pieces is synchronized, so that a brain deciding on another thread can look
+ * ahead while the game takes pieces. Subclasses synchronize split too, since it advances the
+ * same random generator.
+ */
+abstract class LookaheadGenerator implements PieceGenerator {
+    final SplittableRandom random;
+    // The pieces looked at but not taken, as a ring buffer of ordinals into Game.PIECES
+    private byte[] queue = new byte[8];
+    private int head, size;
+
+    /**
+     * Construct a generator using the given random generator
+     * @param random the random generator
+     */
+    LookaheadGenerator(SplittableRandom random) {
+        this.random = random;
+    }
+
+    /**
+     * Pick a new piece
+     * @return the index of the piece in Game.PIECES
+     */
+    abstract int generate();
+
+    @Override
+    public synchronized Piece next() {
+        if(size == 0) return Game.PIECES[generate()];
+        Piece piece = Game.PIECES[queue[head]];
+        head = (head + 1) & (queue.length - 1);
+        size--;
+        return piece;
+    }
+
+    @Override
+    public synchronized Piece peek(int ahead) {
+        if(ahead < 0) throw new IllegalArgumentException("Cannot peek at a piece already taken");
+        if(ahead >= queue.length) {
+            // Grow the ring buffer, unrolling it to start at 0
+            byte[] grown = new byte[Integer.highestOneBit(ahead) << 1];
+            for(int i = 0; i < size; i++) {
+                grown[i] = queue[(head + i) & (queue.length - 1)];
+            }
+            queue = grown;
+            head = 0;
+        }
+        for(; size <= ahead; size++) {
+            queue[(head + size) & (queue.length - 1)] = (byte) generate();
+        }
+        return Game.PIECES[queue[(head + ahead) & (queue.length - 1)]];
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder s = new StringBuilder(getClass().getSimpleName()).append('[');
+        for(int i = 0; i < size; i++) {
+            if(i > 0) s.append(", ");
+            s.append(Game.PIECES[queue[(head + i) & (queue.length - 1)]].getType());
+        }
+        return s.append(']').toString();
+    }
+
+    /**
+     * Shuffle the first n values of an array using the random generator
+     * @param values the array
+     * @param n the number of values
+     */
+    void shuffle(byte[] values, int n) {
+        for(int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            byte t = values[i];
+            values[i] = values[j];
+            values[j] = t;
+        }
+    }
+
+    /**
+     * Get the indices of every piece in Game.PIECES
+     * @return the indices, in order
+     */
+    static byte[] allPieces() {
+        byte[] all = new byte[Game.PIECES.length];
+        for(int i = 0; i < all.length; i++) all[i] = (byte) i;
+        return all;
+    }
+}
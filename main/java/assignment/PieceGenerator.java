@@ -0,0 +1,27 @@
+package assignment;
+
+/**
+ * PieceGenerator interface for Game; picks the sequence of pieces that a game is played with.
+ * A generator can look ahead at the pieces to come without taking them, and can be split into
+ * an independent generator, so that many games can be seeded from one master generator
+ * without sharing a random generator between threads.
+ */
+public interface PieceGenerator {
+
+    /**
+     * Take the next piece.
+     */
+    Piece next();
+
+    /**
+     * Look at a piece to come without taking it; peek(0) is the piece that next() will return.
+     */
+    Piece peek(int ahead);
+
+    /**
+     * Returns a new generator of the same kind whose pieces are independent of this one's.
+     * Splitting changes the pieces this generator will pick after the ones already looked at,
+     * so splitting a generator seeded the same way always gives the same results.
+     */
+    PieceGenerator split();
+}
@@ -0,0 +1,147 @@
+package assignment;
+
+import java.awt.*;
+import java.util.Arrays;
+
+/**
+ * Precomputed placement data for every piece type and rotation on a board of a given width.
+ * For each rotation, the table holds the row bitmasks of the piece at every x where it fits
+ * between the walls, its skirt, and its wall kicks, all as primitive arrays, so that boards can
+ * test and move pieces with mask operations instead of walking the piece's Points.
+ */
+final class PieceTable {
+    private static final PieceTable[] tables = new PieceTable[Long.SIZE + 1];
+    private final Shape[] shapes;
+
+    /**
+     * Get the table for boards of the given width
+     * @param width the width
+     * @return the table
+     */
+    static synchronized PieceTable forWidth(int width) {
+        if(tables[width] == null) {
+            tables[width] = new PieceTable(width);
+        }
+        return tables[width];
+    }
+
+    /**
+     * Construct the table for boards of the given width
+     * @param width the width
+     */
+    private PieceTable(int width) {
+        Piece.PieceType[] types = Piece.PieceType.values();
+        shapes = new Shape[types.length * TetrisPiece.ROTS];
+        for(Piece.PieceType type : types) {
+            Piece piece = new TetrisPiece(type);
+            for(int i = 0; i < TetrisPiece.ROTS; i++) {
+                Shape shape = new Shape(piece, width);
+                // Find the first rotation that covers the same cells as this one
+                for(int j = 0; j < i && shape.canonical == i; j++) {
+                    if(Arrays.equals(shape(type, j).body, shape.body))
+                        shape.canonical = j;
+                }
+                shapes[type.ordinal() * TetrisPiece.ROTS + i] = shape;
+                piece = piece.clockwisePiece();
+            }
+        }
+    }
+
+    /**
+     * Get the shape of the given piece
+     * @param piece the piece
+     * @return the shape
+     */
+    Shape shape(Piece piece) {
+        return shape(piece.getType(), piece.getRotationIndex());
+    }
+
+    /**
+     * Get the shape of the given piece type in the given rotation
+     * @param type the piece type
+     * @param rotation the rotation index
+     * @return the shape
+     */
+    Shape shape(Piece.PieceType type, int rotation) {
+        return shapes[type.ordinal() * TetrisPiece.ROTS + rotation];
+    }
+
+    /**
+     * The placement data of one piece type in one rotation. Coordinates are relative to the
+     * lower-left hand corner of the piece's bounding box, like the piece's body.
+     */
+    static final class Shape {
+        // The columns and rows spanned by the body
+        final int left, right, bottom, top;
+        // The range of x values where the body is between the walls
+        final int minX, maxX;
+        // The row bitmasks of the body moved to the lower-left hand corner, from its bottom row up
+        final long[] body;
+        // The row bitmasks of the body at each x, from its bottom row up, indexed by x - minX
+        final long[][] masks;
+        // The lowest row of the body in each of its columns, from left to right
+        final int[] skirt;
+        // The wall kick offsets to try when rotating from this rotation
+        final int[] clockwiseKickX, clockwiseKickY, counterclockwiseKickX, counterclockwiseKickY;
+        // The lowest rotation index whose body is this body moved by some offset; two placements
+        // cover the same cells if they share this and the same left and bottom edges
+        int canonical;
+
+        /**
+         * Compute the shape of the given piece on a board of the given width
+         * @param piece the piece
+         * @param width the width
+         */
+        Shape(Piece piece, int width) {
+            int l = Integer.MAX_VALUE, r = Integer.MIN_VALUE, b = Integer.MAX_VALUE, t = Integer.MIN_VALUE;
+            for(Point p : piece.getBody()) {
+                l = Math.min(l, p.x);
+                r = Math.max(r, p.x);
+                b = Math.min(b, p.y);
+                t = Math.max(t, p.y);
+            }
+            left = l;
+            right = r;
+            bottom = b;
+            top = t;
+            minX = -left;
+            maxX = width - 1 - right;
+
+            body = new long[top - bottom + 1];
+            for(Point p : piece.getBody()) {
+                body[p.y - bottom] |= 1L << (p.x - left);
+            }
+            masks = new long[Math.max(maxX - minX + 1, 0)][];
+            for(int x = minX; x <= maxX; x++) {
+                long[] m = new long[body.length];
+                for(int i = 0; i < body.length; i++) {
+                    m[i] = body[i] << (x + left);
+                }
+                masks[x - minX] = m;
+            }
+
+            skirt = new int[right - left + 1];
+            for(int i = 0; i < skirt.length; i++) {
+                skirt[i] = piece.getSkirt()[left + i];
+            }
+
+            int rot = piece.getRotationIndex();
+            canonical = rot;
+            boolean stick = piece.getType() == Piece.PieceType.STICK;
+            Point[] cw = (stick ? Piece.I_CLOCKWISE_WALL_KICKS : Piece.NORMAL_CLOCKWISE_WALL_KICKS)[rot];
+            Point[] ccw = (stick ? Piece.I_COUNTERCLOCKWISE_WALL_KICKS : Piece.NORMAL_COUNTERCLOCKWISE_WALL_KICKS)[rot];
+            clockwiseKickX = new int[cw.length];
+            clockwiseKickY = new int[cw.length];
+            for(int i = 0; i < cw.length; i++) {
+                clockwiseKickX[i] = cw[i].x;
+                clockwiseKickY[i] = cw[i].y;
+            }
+            counterclockwiseKickX = new int[ccw.length];
+            counterclockwiseKickY = new int[ccw.length];
+            for(int i = 0; i < ccw.length; i++) {
+                counterclockwiseKickX[i] = ccw[i].x;
+                counterclockwiseKickY[i] = ccw[i].y;
+            }
+        }
+    }
+}
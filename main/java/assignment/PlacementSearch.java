@@ -0,0 +1,293 @@
+package assignment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Finds every distinct placement of a board's current piece that can be reached from where it
+ * is now. The search is a breadth-first search over (x, y, rotation) states using the same
+ * LEFT, RIGHT, DOWN, DROP and wall-kicked rotation rules as TetrisBoard, so it finds tucks,
+ * spins and slides under overhangs as well as plain drops. Placements that cover the same cells
+ * (such as the rotations of a SQUARE) are only reported once, with the shortest path to them.
+ *
+ * With gravity on, the search instead follows the rules of a game where the piece falls a row
+ * before every move, as it does in each step of Game and JBrainTetris. Each action of a path is
+ * then made after such a fall, and a path that ends with DOWN may be placed by the fall instead.
+ *
+ * A PlacementSearch keeps its scratch arrays between searches, so searching boards of the same
+ * size again does not allocate. Placements are encoded as ints; use {@code x}, {@code y} and
+ * {@code rotation} to decode them.
+ */
+public final class PlacementSearch {
+    // Added to x and y so that bounding boxes hanging off the grid still index from 0
+    private static final int MARGIN = 4;
+    private static final Board.Action[] ACTIONS = Board.Action.values();
+
+    private int width, height, xs, ys;
+    private PieceTable.Shape[] shapes = new PieceTable.Shape[TetrisPiece.ROTS];
+    // The states that have been reached, and the placements that have been found, as bitsets
+    private long[] visited, seen;
+    // The states in the order they were reached, and how each one was reached
+    private int[] queue, parent;
+    private byte[] via;
+    // The placements found, the state each is reached from, and the action that places it
+    private int[] found = new int[64], foundState = new int[64];
+    private byte[] foundAction = new byte[64];
+    private int count;
+    private boolean gravity;
+
+    /**
+     * Set whether the piece falls a row before every move
+     * @param gravity whether to search with gravity
+     */
+    public void setGravity(boolean gravity) {
+        this.gravity = gravity;
+    }
+
+    /**
+     * Get whether the piece falls a row before every move
+     * @return whether the search is with gravity
+     */
+    public boolean isGravity() {
+        return gravity;
+    }
+
+    /**
+     * Search for every placement of the current piece of the given board. The board is not
+     * changed.
+     * @param board the board
+     * @return the number of placements found
+     */
+    public int search(Board board) {
+        count = 0;
+        Piece piece = board.getCurrentPiece();
+        if(piece == null) return 0;
+        TetrisBoard b = board instanceof TetrisBoard ? (TetrisBoard) board : new TetrisBoard(board);
+        resize(b.getWidth(), b.getHeight());
+        for(int i = 0; i < TetrisPiece.ROTS; i++) {
+            shapes[i] = b.table.shape(piece.getType(), i);
+        }
+
+        Arrays.fill(visited, 0);
+        Arrays.fill(seen, 0);
+        int head = 0, tail = 0;
+        int start = state(piece.getRotationIndex(), b.getCurrentPieceX(), b.getCurrentPieceY());
+        visited[start >>> 6] |= 1L << start;
+        parent[start] = start;
+        queue[tail++] = start;
+        while(head < tail) {
+            int s = queue[head++];
+            int rot = s / (xs * ys), x = s / ys % xs - MARGIN, y = s % ys - MARGIN;
+            PieceTable.Shape shape = shapes[rot];
+
+            // The piece falls before it moves, and is placed if it can't
+            if(gravity) {
+                if(!b.fits(shape, x, y - 1)) {
+                    record(s, rot, x, y, Board.Action.DOWN);
+                    continue;
+                }
+                y--;
+            }
+
+            // Place the piece here if it can't move down, or wherever it drops to
+            if(!b.fits(shape, x, y - 1)) {
+                record(s, rot, x, y, Board.Action.DOWN);
+            }
+            int landing = b.dropHeight(shape, x);
+            if(b.fits(shape, x, landing)) {
+                record(s, rot, x, landing, Board.Action.DROP);
+            }
+
+            tail = visit(b, s, rot, x - 1, y, Board.Action.LEFT, tail);
+            tail = visit(b, s, rot, x + 1, y, Board.Action.RIGHT, tail);
+            tail = visit(b, s, rot, x, y - 1, Board.Action.DOWN, tail);
+            tail = rotate(b, s, (rot + 1) % TetrisPiece.ROTS, x, y,
+                    shape.clockwiseKickX, shape.clockwiseKickY, Board.Action.CLOCKWISE, tail);
+            tail = rotate(b, s, (rot + TetrisPiece.ROTS - 1) % TetrisPiece.ROTS, x, y,
+                    shape.counterclockwiseKickX, shape.counterclockwiseKickY, Board.Action.COUNTERCLOCKWISE, tail);
+        }
+        return count;
+    }
+
+    /**
+     * Get the number of placements found by the last search
+     * @return the number of placements
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Get a placement found by the last search, in the order they were found
+     * @param i the index of the placement
+     * @return the encoded placement
+     */
+    public int getPlacement(int i) {
+        if(i < 0 || i >= count) throw new IndexOutOfBoundsException(i);
+        return found[i];
+    }
+
+    /**
+     * Get the placements found by the last search
+     * @return the encoded placements
+     */
+    public int[] getPlacements() {
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Get the shortest list of actions that takes the piece from where it started to a
+     * placement found by the last search. The last action places the piece, or with gravity,
+     * the fall before it may.
+     * @param i the index of the placement
+     * @return the actions
+     */
+    public List<Board.Action> getPath(int i) {
+        if(i < 0 || i >= count) throw new IndexOutOfBoundsException(i);
+        List<Board.Action> path = new ArrayList<>();
+        path.add(ACTIONS[foundAction[i]]);
+        for(int s = foundState[i]; parent[s] != s; s = parent[s]) {
+            path.add(ACTIONS[via[s]]);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Get the x value of the position of an encoded placement
+     * @param placement the placement
+     * @return the x value
+     */
+    public static int x(int placement) {
+        return (byte) (placement >>> 2);
+    }
+
+    /**
+     * Get the y value of the position of an encoded placement
+     * @param placement the placement
+     * @return the y value
+     */
+    public static int y(int placement) {
+        return placement >> 10;
+    }
+
+    /**
+     * Get the rotation index of the piece in an encoded placement
+     * @param placement the placement
+     * @return the rotation index
+     */
+    public static int rotation(int placement) {
+        return placement & 3;
+    }
+
+    /**
+     * Encode a placement
+     * @param rotation the rotation index of the piece
+     * @param x the x value of the piece's position
+     * @param y the y value of the piece's position
+     * @return the placement
+     */
+    public static int encode(int rotation, int x, int y) {
+        return y << 10 | (x & 0xFF) << 2 | rotation;
+    }
+
+    /**
+     * Make sure the scratch arrays fit a board of the given size
+     * @param w the width of the board
+     * @param h the height of the board
+     */
+    private void resize(int w, int h) {
+        if(w == width && h == height) return;
+        width = w;
+        height = h;
+        xs = w + MARGIN;
+        ys = h + MARGIN;
+        int states = TetrisPiece.ROTS * xs * ys;
+        visited = new long[(states + 63) >>> 6];
+        seen = new long[(TetrisPiece.ROTS * w * h + 63) >>> 6];
+        queue = new int[states];
+        parent = new int[states];
+        via = new byte[states];
+    }
+
+    /**
+     * Get the index of a state
+     * @param rot the rotation index
+     * @param x the x value of the position
+     * @param y the y value of the position
+     * @return the index
+     */
+    private int state(int rot, int x, int y) {
+        return (rot * xs + x + MARGIN) * ys + y + MARGIN;
+    }
+
+    /**
+     * Move to the given state if the piece fits there and it has not been reached yet
+     * @param b the board
+     * @param from the state being moved from
+     * @param rot the rotation index
+     * @param x the x value of the position
+     * @param y the y value of the position
+     * @param act the action that moves there
+     * @param tail the end of the queue
+     * @return the new end of the queue
+     */
+    private int visit(TetrisBoard b, int from, int rot, int x, int y, Board.Action act, int tail) {
+        if(!b.fits(shapes[rot], x, y)) return tail;
+        int s = state(rot, x, y);
+        if((visited[s >>> 6] & 1L << s) != 0) return tail;
+        visited[s >>> 6] |= 1L << s;
+        parent[s] = from;
+        via[s] = (byte) act.ordinal();
+        queue[tail] = s;
+        return tail + 1;
+    }
+
+    /**
+     * Rotate to the given rotation using the first wall kick that fits, like TetrisBoard does
+     * @param b the board
+     * @param from the state being rotated from
+     * @param rot the rotation index to rotate to
+     * @param x the x value of the position
+     * @param y the y value of the position
+     * @param kickX the x offsets of the wall kicks
+     * @param kickY the y offsets of the wall kicks
+     * @param act the rotation action
+     * @param tail the end of the queue
+     * @return the new end of the queue
+     */
+    private int rotate(TetrisBoard b, int from, int rot, int x, int y, int[] kickX, int[] kickY,
+                       Board.Action act, int tail) {
+        for(int i = 0; i < kickX.length; i++) {
+            if(b.fits(shapes[rot], x + kickX[i], y + kickY[i])) {
+                return visit(b, from, rot, x + kickX[i], y + kickY[i], act, tail);
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * Record a placement if no placement covering the same cells has been found yet
+     * @param from the state the placement is reached from
+     * @param rot the rotation index
+     * @param x the x value of the position
+     * @param y the y value of the position
+     * @param act the action that places the piece
+     */
+    private void record(int from, int rot, int x, int y, Board.Action act) {
+        PieceTable.Shape shape = shapes[rot];
+        int key = (shape.canonical * width + x + shape.left) * height + y + shape.bottom;
+        if((seen[key >>> 6] & 1L << key) != 0) return;
+        seen[key >>> 6] |= 1L << key;
+        if(count == found.length) {
+            found = Arrays.copyOf(found, count * 2);
+            foundState = Arrays.copyOf(foundState, count * 2);
+            foundAction = Arrays.copyOf(foundAction, count * 2);
+        }
+        found[count] = encode(rot, x, y);
+        foundState[count] = from;
+        foundAction[count++] = (byte) act.ordinal();
+    }
+}
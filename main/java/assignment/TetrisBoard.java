@@ -1,49 +1,119 @@
 package assignment;
 
 import java.awt.*;
-import java.util.Collections;
-import java.util.TreeSet;
+import java.util.Arrays;
 
 /**
  * Represents a Tetris board -- essentially a 2D grid of piece types (or nulls). Supports
  * tetris pieces and row clearing.  Does not do any drawing or have any idea of
  * pixels. Instead, just represents the abstract 2D board.
+ *
+ * The locked stack is stored as a bitboard: one bitmask per row, where bit x is set if
+ * (x, y) is filled, alongside a byte plane holding the piece type of every filled cell.
+ * The current piece is not written into the stack until it is placed; it is overlaid
+ * on the stack when the grid is queried.
  */
 public final class TetrisBoard implements Board {
-    Piece.PieceType[][] board;
+    private static final Piece.PieceType[] TYPES = Piece.PieceType.values();
+    // Random keys for each column and piece type, used for Zobrist hashing
+    private static final long[] KEYS = new long[Long.SIZE * TYPES.length];
+    static {
+        for(int i = 0; i < KEYS.length; i++) {
+            KEYS[i] = mix(i + 1);
+        }
+    }
+    long[] rows;
+    byte[][] cells;
+    // The Zobrist hash of each row of the stack, and of the whole stack
+    long[] rowHash;
+    long hash;
+    // Which rows of the type plane belong to this board alone
+    boolean[] owned;
+    // Whether the stack arrays are shared with a copy of this board
+    boolean shared;
+    long fullRow;
+    // The placement data of every piece on a board of this width
+    PieceTable table;
     Piece curr;
-    Point pos;
+    int currX, currY;
     Result lastRes;
     Action lastAct;
     int rowsCleared;
     int maxHeight;
     int[] colHeight;
-    int[] rowWidth;
+    // Features of the stack for scoring it, kept up to date as pieces are set and rows are
+    // cleared; see BoardFeatures
+    int filled, aggregateHeight, bumpiness, wells, contacts, wallContacts;
+    private BoardFeatures features;
+    // The undo journal of pushed actions, and the entry currently being recorded
+    private Frame[] journal;
+    private int depth;
+    private Frame recording;
+    // Scratch space for the rows removed by a clear
+    private byte[][] spare;
+    // Whether moves on this board are recorded as flight recorder events; copies don't record
+    boolean events;
+    // The number of wall kicks the last rotation tried
+    private int kicks;
 
     /**
-     * Constructs a TetrisBoard by copying the given board
+     * Constructs a TetrisBoard by copying the given board. Copies of a TetrisBoard share its
+     * stack until one of them is written to, and even then only the rows that change are copied.
      * @param B the board to copy
      */
     public TetrisBoard(Board B){
-        board = new Piece.PieceType[B.getWidth()][B.getHeight()];
-        for(int i=0; i<B.getWidth(); i++){
-            for(int j=0; j<B.getHeight(); j++){
-                board[i][j] = B.getGrid(i, j);
+        if(B instanceof TetrisBoard) {
+            TetrisBoard b = (TetrisBoard) B;
+            rows = b.rows;
+            cells = b.cells;
+            rowHash = b.rowHash;
+            hash = b.hash;
+            owned = b.owned;
+            colHeight = b.colHeight;
+            fullRow = b.fullRow;
+            table = b.table;
+            shared = b.shared = true;
+            filled = b.filled;
+            aggregateHeight = b.aggregateHeight;
+            bumpiness = b.bumpiness;
+            wells = b.wells;
+            contacts = b.contacts;
+            wallContacts = b.wallContacts;
+        }
+        else {
+            init(B.getWidth(), B.getHeight());
+            // Other boards may hold the current piece in their grid, so leave it out of the
+            // stack unless it has already been placed
+            Piece other = B.getLastResult() == Result.PLACE ? null : B.getCurrentPiece();
+            Point otherPos = B.getCurrentPiecePosition();
+            for(int x = 0; x < getWidth(); x++) {
+                for(int y = 0; y < getHeight(); y++) {
+                    Piece.PieceType type = B.getGrid(x, y);
+                    if(type != null && !(other != null && covers(other, otherPos, x, y))) {
+                        rows[y] |= 1L << x;
+                        cells[y][x] = (byte) (type.ordinal() + 1);
+                    }
+                }
+                colHeight[x] = B.getColumnHeight(x);
+            }
+            for(int y = 0; y < getHeight(); y++) {
+                for(long mask = rows[y]; mask != 0; mask &= mask - 1) {
+                    int x = Long.numberOfTrailingZeros(mask);
+                    updateHash(y, rowHash[y] ^ key(x, cells[y][x]));
+                }
             }
         }
         curr = B.getCurrentPiece();
-        pos = B.getCurrentPiecePosition();
+        if(curr != null) {
+            currX = B.getCurrentPieceX();
+            currY = B.getCurrentPieceY();
+        }
         lastRes = B.getLastResult();
         lastAct = B.getLastAction();
         rowsCleared = B.getRowsCleared();
         maxHeight = B.getMaxHeight();
-        colHeight = new int[B.getWidth()];
-        rowWidth = new int[B.getHeight()];
-        for(int i=0; i<colHeight.length; i++){
-            colHeight[i] = B.getColumnHeight(i);
-        }
-        for(int i=0; i<rowWidth.length; i++){
-            rowWidth[i] = B.getRowWidth(i);
+        if(!(B instanceof TetrisBoard)) {
+            computeFeatures();
         }
     }
 
@@ -53,11 +123,141 @@ public final class TetrisBoard implements Board {
      * @param height the height
      */
     public TetrisBoard(int width, int height) {
-        board = new Piece.PieceType[width][height];
+        init(width, height);
         rowsCleared = 0;
         maxHeight = 0;
+    }
+
+    /**
+     * Allocate an empty stack with the given width and height
+     * @param width the width
+     * @param height the height
+     */
+    private void init(int width, int height) {
+        if(width > Long.SIZE) {
+            throw new IllegalArgumentException("Board width must be at most " + Long.SIZE);
+        }
+        rows = new long[height];
+        cells = new byte[height][width];
+        rowHash = new long[height];
+        hash = 0;
+        for(int y = 0; y < height; y++) {
+            hash ^= rowKey(0, y);
+        }
+        owned = new boolean[height];
+        Arrays.fill(owned, true);
+        fullRow = width == Long.SIZE ? -1L : (1L << width) - 1;
+        table = PieceTable.forWidth(width);
         colHeight = new int[width];
-        rowWidth = new int[height];
+        maxHeight = 0;
+        computeFeatures();
+    }
+
+    /**
+     * Make this board a copy of the given board, reusing this board's arrays. Unlike the copy
+     * constructor nothing is shared, so a scratch board that is loaded again and again does not
+     * allocate once it has the right size and no copies have been made of it.
+     * @param b the board to copy
+     */
+    void load(TetrisBoard b) {
+        if(shared || rows.length != b.rows.length || colHeight.length != b.colHeight.length) {
+            init(b.getWidth(), b.getHeight());
+            shared = false;
+        }
+        System.arraycopy(b.rows, 0, rows, 0, rows.length);
+        System.arraycopy(b.rowHash, 0, rowHash, 0, rowHash.length);
+        System.arraycopy(b.colHeight, 0, colHeight, 0, colHeight.length);
+        for(int y = 0; y < rows.length; y++) {
+            // Rows still shared with a board this one was copied from can't be written over
+            if(!owned[y]) {
+                cells[y] = new byte[colHeight.length];
+                owned[y] = true;
+            }
+            System.arraycopy(b.cells[y], 0, cells[y], 0, colHeight.length);
+        }
+        hash = b.hash;
+        curr = b.curr;
+        currX = b.currX;
+        currY = b.currY;
+        lastRes = b.lastRes;
+        lastAct = b.lastAct;
+        rowsCleared = b.rowsCleared;
+        maxHeight = b.maxHeight;
+        filled = b.filled;
+        aggregateHeight = b.aggregateHeight;
+        bumpiness = b.bumpiness;
+        wells = b.wells;
+        contacts = b.contacts;
+        wallContacts = b.wallContacts;
+        depth = 0;
+    }
+
+    /**
+     * Take ownership of the stack arrays before writing to them if they are shared with another
+     * board. The rows of the type plane stay shared until they are written to.
+     */
+    private void own() {
+        if(!shared) return;
+        rows = rows.clone();
+        cells = cells.clone();
+        rowHash = rowHash.clone();
+        colHeight = colHeight.clone();
+        owned = new boolean[rows.length];
+        shared = false;
+    }
+
+    /**
+     * Get the given row of the type plane for writing, copying it if it is shared
+     * @param y the row number
+     * @return the row
+     */
+    private byte[] ownRow(int y) {
+        if(!owned[y]) {
+            cells[y] = cells[y].clone();
+            owned[y] = true;
+        }
+        return cells[y];
+    }
+
+    /**
+     * Get the Zobrist key of a cell in a row
+     * @param x the column of the cell
+     * @param val the type of the cell, as stored in the type plane
+     * @return the key
+     */
+    private static long key(int x, byte val) {
+        return KEYS[x * TYPES.length + val - 1];
+    }
+
+    /**
+     * Get the contribution of a row with the given hash to the hash of the board
+     * @param h the hash of the row
+     * @param y the row number
+     * @return the contribution
+     */
+    private static long rowKey(long h, int y) {
+        return mix(h ^ (y + 1) * 0x9E3779B97F4A7C15L);
+    }
+
+    /**
+     * Scramble the bits of the given value (the MurmurHash3 finalizer)
+     * @param z the value
+     * @return the scrambled value
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+
+    /**
+     * Change the hash of the given row, updating the hash of the stack to match
+     * @param y the row number
+     * @param h the new hash of the row
+     */
+    private void updateHash(int y, long h) {
+        hash ^= rowKey(rowHash[y], y) ^ rowKey(h, y);
+        rowHash[y] = h;
     }
 
     /**
@@ -66,7 +266,59 @@ public final class TetrisBoard implements Board {
      * @return the result
      */
     @Override
-    public Result move(Action act) { 
+    public Result move(Action act) {
+        depth = 0;
+        return events ? applyRecorded(act) : apply(act);
+    }
+
+    /**
+     * Apply the given action like apply, recording what it did as flight recorder events
+     * @param act the action
+     * @return the result
+     */
+    private Result applyRecorded(Action act) {
+        Piece piece = curr;
+        int cleared = rowsCleared;
+        Result res = apply(act);
+        if(piece == null) return res;
+        if(act == Action.CLOCKWISE || act == Action.COUNTERCLOCKWISE) {
+            if(GameEvents.ROTATION.isEnabled()) {
+                GameEvents.Rotation event = new GameEvents.Rotation();
+                event.piece = piece.getType().name();
+                event.clockwise = act == Action.CLOCKWISE;
+                event.kicksTried = kicks;
+                event.succeeded = res == Result.SUCCESS;
+                event.commit();
+            }
+        }
+        else if(res == Result.PLACE) {
+            if(GameEvents.PLACE.isEnabled()) {
+                GameEvents.Place event = new GameEvents.Place();
+                event.piece = piece.getType().name();
+                event.x = currX;
+                event.y = currY;
+                event.rotation = piece.getRotationIndex();
+                event.rowsCleared = rowsCleared - cleared;
+                event.stackHeight = maxHeight;
+                event.holes = aggregateHeight - filled;
+                event.commit();
+            }
+            if(rowsCleared > cleared && GameEvents.ROW_CLEAR.isEnabled()) {
+                GameEvents.RowClear clear = new GameEvents.RowClear();
+                clear.rows = rowsCleared - cleared;
+                clear.stackHeight = maxHeight;
+                clear.commit();
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Apply the given action and return its result, without touching the journal
+     * @param act the action
+     * @return the result
+     */
+    private Result apply(Action act) {
         lastAct = act;
         lastRes = Result.NO_PIECE;
         // Check if a piece is present
@@ -98,59 +350,94 @@ public final class TetrisBoard implements Board {
                 lastRes = Result.SUCCESS;
                 break;
         }
-        return lastRes; 
+        return lastRes;
     }
 
     /**
-     * Check for any filled rows and clear them if necessary
+     * Check for any filled rows and clear them if necessary. All full rows are removed in a
+     * single bottom-up pass, and the column heights are adjusted rather than rescanned.
      */
     private void clearRows(){
-        TreeSet<Integer> Ys = new TreeSet<>(Collections.reverseOrder());
-        for(Point p: curr.getBody()){
-            Ys.add(pos.y + p.y);
-        }
-        
-        // Iterate from the highest y to the lowest
-        for(int y : Ys){
-            if(rowWidth[y] == getWidth()){
-                deleteRow(y);
-            }
+        // Only the rows the piece was placed in can have become full
+        PieceTable.Shape shape = table.shape(curr);
+        int lo = currY + shape.bottom, hi = currY + shape.top;
+        long full = 0;
+        for(int y = lo; y <= hi; y++) {
+            if(rows[y] == fullRow) full |= 1L << (y - lo);
         }
-    }
+        if(full == 0) return;
+        int count = Long.bitCount(full);
 
-    /**
-     * Delete the given row
-     * @param y the row to delete
-     */
-    private void deleteRow(int y){
-        // Shift all elements above the row down one row
-        for(int i = y + 1; i <= board[0].length; i++){
-            if(rowWidth[i-1] == 0) break;
-            rowWidth[i-1] = 0;
-            for(int j = 0; j < board.length; j++){
-                if(i == board[0].length){
-                    board[j][i-1] = null;
-                }
-                else{
-                    board[j][i-1] = board[j][i];
-                    if(board[j][i] != null)
-                        rowWidth[i-1]++;
+        // Slide the remaining rows down over the full ones, keeping the removed rows to reuse
+        // as the empty rows at the top
+        if(spare == null || spare.length < count) {
+            spare = new byte[Math.max(count, 4)][];
+        }
+        int top = maxHeight, dst = lo + Long.numberOfTrailingZeros(full), removed = 0;
+        for(int y = dst; y < top; y++) {
+            hash ^= rowKey(rowHash[y], y);
+        }
+        int first = dst;
+        for(int src = dst; src < top; src++) {
+            if(src <= hi && (full & 1L << (src - lo)) != 0) {
+                if(recording != null) {
+                    recording.saveRow(src, cells[src], rowHash[src]);
                 }
+                spare[removed++] = owned[src] ? cells[src] : null;
+                continue;
             }
+            rows[dst] = rows[src];
+            rowHash[dst] = rowHash[src];
+            cells[dst] = cells[src];
+            owned[dst] = owned[src];
+            dst++;
         }
-        
-        // Update instance variables
-        rowsCleared++;
-        maxHeight--;
-        for(int i = 0; i < getWidth(); i++) {
-            colHeight[i] = 0;
-            for(int j = getHeight()-1; j >= 0; j--) {
-                if(board[i][j] != null) {
-                    colHeight[i] = j + 1;
-                    break;
-                }
+        for(int i = 0; dst < top; dst++, i++) {
+            byte[] row = spare[i];
+            if(row == null) {
+                row = new byte[getWidth()];
+            } else {
+                Arrays.fill(row, (byte) 0);
+                spare[i] = null;
             }
+            rows[dst] = 0;
+            rowHash[dst] = 0;
+            cells[dst] = row;
+            owned[dst] = true;
+        }
+        for(int y = first; y < top; y++) {
+            hash ^= rowKey(rowHash[y], y);
+        }
+
+        // Lower each column by the number of full rows beneath its top; a column whose top was
+        // in a full row has to look further down for its new top
+        long rescan = 0;
+        for(int x = 0; x < colHeight.length; x++) {
+            int h = colHeight[x];
+            if(h <= lo) continue;
+            if(h - 1 <= hi && (full & 1L << (h - 1 - lo)) != 0) {
+                rescan |= 1L << x;
+            } else {
+                colHeight[x] = h - Long.bitCount(full & ((1L << Math.min(h - lo, Long.SIZE - 1)) - 1));
+            }
+        }
+        for(int y = hi - count; y >= 0 && rescan != 0; y--) {
+            long found = rows[y] & rescan;
+            rescan &= ~found;
+            for(; found != 0; found &= found - 1) {
+                colHeight[Long.numberOfTrailingZeros(found)] = y + 1;
+            }
+        }
+        for(; rescan != 0; rescan &= rescan - 1) {
+            colHeight[Long.numberOfTrailingZeros(rescan)] = 0;
         }
+        maxHeight = 0;
+        for(int h : colHeight) {
+            maxHeight = Math.max(maxHeight, h);
+        }
+        // Every column and row can change, so count the features again
+        computeFeatures();
+        rowsCleared += count;
     }
 
     /**
@@ -158,16 +445,12 @@ public final class TetrisBoard implements Board {
      * @return OUT_BOUNDS if out of bounds, otherwise PLACE
      */
     private Result drop() {
-        set(null);
-        Point temp = pos;
-        pos = new Point(pos.x, dropHeight(curr, pos.x));
+        int landing = dropHeight(curr, currX);
         // Check for out of bounds
-        if(!check(0, 0)) {
-            pos = temp;
-            set(curr.getType());
+        if(!check(0, landing - currY)) {
             return Result.OUT_BOUNDS;
         }
-        set(curr.getType());
+        currY = landing;
         place();
         return Result.PLACE;
     }
@@ -176,14 +459,12 @@ public final class TetrisBoard implements Board {
      * Place the current piece
      */
     private void place() {
-        // Update instance variables
-        for(Point p : curr.getBody()) {
-            int x = pos.x + p.x, y = pos.y + p.y;
-            maxHeight = Math.max(maxHeight, y + 1);
-            colHeight[x] = Math.max(colHeight[x], y + 1);
-            rowWidth[y]++;
+        if(recording != null) {
+            recording.saveStack(this);
         }
+        set();
         clearRows();
+        curr = null;
     }
 
     /**
@@ -194,13 +475,8 @@ public final class TetrisBoard implements Board {
      * @return the result of the shift
      */
     private Result shift(int dx, int dy, Action act) {
-        // Remove the original piece
-        if(act == Action.LEFT || act == Action.RIGHT || act == Action.DOWN)
-            set(null);
-        
         // Check for out of bounds
         if(!check(dx, dy)) {
-            set(curr.getType());
             // Place if shifted down
             if(act == Action.DOWN) {
                 place();
@@ -208,10 +484,10 @@ public final class TetrisBoard implements Board {
             }
             return Result.OUT_BOUNDS;
         }
-        
-        // Add the shifted piece
-        pos = new Point(pos.x + dx, pos.y + dy);
-        set(curr.getType());
+
+        // Move the piece
+        currX += dx;
+        currY += dy;
         return Result.SUCCESS;
     }
 
@@ -220,26 +496,8 @@ public final class TetrisBoard implements Board {
      * @return the result of the rotation
      */
     private Result rotateClockwise() {
-        Point[] kicks;
-        if(curr.getType() == Piece.PieceType.STICK) {
-            kicks = Piece.I_CLOCKWISE_WALL_KICKS[curr.getRotationIndex()];
-        } else {
-            kicks = Piece.NORMAL_CLOCKWISE_WALL_KICKS[curr.getRotationIndex()];
-        }
-        set(null);
-        Piece temp = curr;
-        curr = curr.clockwisePiece();
-        // Try each wall kick one by one
-        for(Point kick : kicks) {
-            if(check(kick.x, kick.y)) {
-                // Shift the piece if the kick is successful
-                return shift(kick.x, kick.y, Action.CLOCKWISE);
-            }
-        }
-        // Reset the piece and return out of bounds if no kicks work
-        curr = temp;
-        set(curr.getType());
-        return Result.OUT_BOUNDS;
+        PieceTable.Shape from = table.shape(curr);
+        return rotate(curr.clockwisePiece(), from.clockwiseKickX, from.clockwiseKickY);
     }
 
     /**
@@ -247,24 +505,31 @@ public final class TetrisBoard implements Board {
      * @return the result of the rotation
      */
     private Result rotateCounterClockwise() {
-        Point[] kicks;
-        if(curr.getType() == Piece.PieceType.STICK) {
-            kicks = Piece.I_COUNTERCLOCKWISE_WALL_KICKS[curr.getRotationIndex()];
-        } else {
-            kicks = Piece.NORMAL_COUNTERCLOCKWISE_WALL_KICKS[curr.getRotationIndex()];
-        }
-        set(null);
-        Piece temp = curr;
-        curr = curr.counterclockwisePiece();
-        // Try each wall kick one by one
-        for(Point kick : kicks) {
-            if(check(kick.x, kick.y)) {
-                return shift(kick.x, kick.y, Action.CLOCKWISE);
+        PieceTable.Shape from = table.shape(curr);
+        return rotate(curr.counterclockwisePiece(), from.counterclockwiseKickX, from.counterclockwiseKickY);
+    }
+
+    /**
+     * Replace the current piece with the given rotation of it, trying each wall kick in turn
+     * @param rotated the rotated piece
+     * @param kickX the x offsets of the wall kicks
+     * @param kickY the y offsets of the wall kicks
+     * @return the result of the rotation
+     */
+    private Result rotate(Piece rotated, int[] kickX, int[] kickY) {
+        PieceTable.Shape shape = table.shape(rotated);
+        for(int i = 0; i < kickX.length; i++) {
+            if(fits(shape, currX + kickX[i], currY + kickY[i])) {
+                // Move the piece if the kick is successful
+                kicks = i + 1;
+                curr = rotated;
+                currX += kickX[i];
+                currY += kickY[i];
+                return Result.SUCCESS;
             }
         }
         // Return out of bounds if no kicks work
-        curr = temp;
-        set(curr.getType());
+        kicks = kickX.length;
         return Result.OUT_BOUNDS;
     }
 
@@ -275,33 +540,165 @@ public final class TetrisBoard implements Board {
      * @return whether the piece can be shifted
      */
     private boolean check(int dx, int dy) {
-        int x = pos.x + dx, y = pos.y + dy;
-        for(Point point : curr.getBody()) {
-            int nx = x + point.x;
-            int ny = y + point.y;
-            // Check for out of bounds
-            if(nx < 0 || ny < 0 || nx >= getWidth() || ny >= getHeight())
-                return false;
-            // Check for intersection with existing piece
-            if(board[nx][ny] != null)
+        return fits(table.shape(curr), currX + dx, currY + dy);
+    }
+
+    /**
+     * Check if a piece with the given shape fits on the board at the given position
+     * @param shape the shape of the piece
+     * @param x the x value of the piece's position
+     * @param y the y value of the piece's position
+     * @return whether the piece is in bounds and does not intersect the stack
+     */
+    boolean fits(PieceTable.Shape shape, int x, int y) {
+        // Check for out of bounds
+        if(x < shape.minX || x > shape.maxX || y + shape.bottom < 0 || y + shape.top >= rows.length)
+            return false;
+        // Check for intersection with the stack
+        long[] masks = shape.masks[x - shape.minX];
+        for(int i = 0, ny = y + shape.bottom; i < masks.length; i++, ny++) {
+            if((rows[ny] & masks[i]) != 0)
                 return false;
         }
         return true;
     }
 
     /**
-     * Set the body of the current piece to the given value
-     * @param val the value
+     * Write the body of the current piece into the stack
+     */
+    private void set() {
+        own();
+        byte val = (byte) (curr.getType().ordinal() + 1);
+        PieceTable.Shape shape = table.shape(curr);
+        long[] masks = shape.masks[currX - shape.minX];
+        // Take out the features of the columns and rows the piece touches, and count them
+        // again once it is in
+        int left = currX + shape.left, right = currX + shape.right;
+        int bottom = currY + shape.bottom, top = currY + shape.top;
+        countFeatures(left, right, bottom, top, -1);
+        for(int i = 0, ny = bottom; i < masks.length; i++, ny++) {
+            byte[] row = ownRow(ny);
+            long h = rowHash[ny];
+            for(long m = masks[i]; m != 0; m &= m - 1) {
+                int nx = Long.numberOfTrailingZeros(m);
+                row[nx] = val;
+                h ^= key(nx, val);
+                colHeight[nx] = Math.max(colHeight[nx], ny + 1);
+            }
+            rows[ny] |= masks[i];
+            filled += Long.bitCount(masks[i]);
+            updateHash(ny, h);
+        }
+        countFeatures(left, right, bottom, top, 1);
+        maxHeight = Math.max(maxHeight, currY + shape.top + 1);
+    }
+
+    /**
+     * Add or take out the parts of the features that depend on the given columns and rows:
+     * the heights of the columns, the bumpiness and wells next to them, and the contacts in
+     * and next to the rows
+     * @param left the first column
+     * @param right the last column
+     * @param bottom the first row
+     * @param top the last row
+     * @param sign 1 to add the parts, -1 to take them out
+     */
+    private void countFeatures(int left, int right, int bottom, int top, int sign) {
+        int width = colHeight.length;
+        for(int x = left; x <= right; x++) {
+            aggregateHeight += sign * colHeight[x];
+        }
+        for(int x = Math.max(left - 1, 0); x <= Math.min(right + 1, width - 1); x++) {
+            wells += sign * wellDepth(x);
+            if(x < Math.min(right + 1, width - 1)) {
+                bumpiness += sign * Math.abs(colHeight[x] - colHeight[x + 1]);
+            }
+        }
+        for(int y = bottom; y <= top; y++) {
+            contacts += sign * Long.bitCount(rows[y] & rows[y] >>> 1);
+            wallContacts += sign * wallCells(y);
+        }
+        for(int y = Math.max(bottom - 1, 0); y <= Math.min(top, rows.length - 2); y++) {
+            contacts += sign * Long.bitCount(rows[y] & rows[y + 1]);
+        }
+    }
+
+    /**
+     * Count all the features of the stack from scratch
+     */
+    private void computeFeatures() {
+        int width = colHeight.length;
+        filled = aggregateHeight = bumpiness = wells = contacts = wallContacts = 0;
+        for(int x = 0; x < width; x++) {
+            aggregateHeight += colHeight[x];
+            wells += wellDepth(x);
+            if(x + 1 < width) {
+                bumpiness += Math.abs(colHeight[x] - colHeight[x + 1]);
+            }
+        }
+        for(int y = 0; y < maxHeight; y++) {
+            filled += Long.bitCount(rows[y]);
+            contacts += Long.bitCount(rows[y] & rows[y] >>> 1);
+            if(y + 1 < rows.length) {
+                contacts += Long.bitCount(rows[y] & rows[y + 1]);
+            }
+            wallContacts += wallCells(y);
+        }
+    }
+
+    /**
+     * Get how far the given column is below both of its neighbours, with the walls as high as
+     * the board
+     * @param x the column
+     * @return the depth of the well, or 0 if the column is not a well
+     */
+    int wellDepth(int x) {
+        int left = x == 0 ? rows.length : colHeight[x - 1];
+        int right = x == colHeight.length - 1 ? rows.length : colHeight[x + 1];
+        return Math.max(Math.min(left, right) - colHeight[x], 0);
+    }
+
+    /**
+     * Count the sides of filled cells in a row that touch a wall or the floor
+     * @param y the row
+     * @return the number of sides
+     */
+    private int wallCells(int y) {
+        long row = rows[y];
+        int sides = (int) (row & 1) + (int) (row >>> (colHeight.length - 1) & 1);
+        return y == 0 ? sides + Long.bitCount(row) : sides;
+    }
+
+    /**
+     * Get the features of the stack, which are kept up to date as it changes
+     * @return the features
+     */
+    public BoardFeatures getFeatures() {
+        if(features == null) {
+            features = new BoardFeatures(this);
+        }
+        return features;
+    }
+
+    /**
+     * Check whether the given piece at the given position covers the given cell
+     * @param piece the piece
+     * @param at the position of the piece
+     * @param x the x value
+     * @param y the y value
+     * @return whether the cell is part of the piece's body
      */
-    private void set(Piece.PieceType val) {
-        int x = pos.x, y = pos.y;
-        for(Point point : curr.getBody()) {
-            board[x + point.x][y + point.y] = val;
+    private static boolean covers(Piece piece, Point at, int x, int y) {
+        for(Point point : piece.getBody()) {
+            if(at.x + point.x == x && at.y + point.y == y)
+                return true;
         }
+        return false;
     }
 
     /**
-     * Return the board if the given action were called
+     * Return the board if the given action were called. The copy shares this board's stack, so
+     * only a placement pays for copying, and then only for the rows it changes.
      * @param act the action
      * @return a mutated copy of the board
      */
@@ -313,13 +710,189 @@ public final class TetrisBoard implements Board {
         return newBoard;
     }
 
+    /**
+     * Apply the given action, recording it in the journal so it can be undone
+     * @param act the action
+     * @return the result
+     */
+    @Override
+    public Result push(Action act) {
+        if(journal == null) {
+            journal = new Frame[8];
+        }
+        else if(depth == journal.length) {
+            journal = Arrays.copyOf(journal, depth * 2);
+        }
+        if(journal[depth] == null) {
+            journal[depth] = new Frame(getWidth());
+        }
+        Frame frame = journal[depth++];
+        frame.save(this);
+        recording = frame;
+        try {
+            return apply(act);
+        } finally {
+            recording = null;
+        }
+    }
+
+    /**
+     * Undo the last action recorded in the journal
+     */
+    @Override
+    public void pop() {
+        if(depth == 0) {
+            throw new IllegalStateException("No action to undo");
+        }
+        Frame frame = journal[--depth];
+        if(frame.placed) {
+            own();
+            // Put the cleared rows back, lowest first
+            for(int i = 0; i < frame.clearedCount; i++) {
+                restoreRow(frame.clearedY[i], frame.clearedCells[i], frame.clearedHash[i]);
+            }
+            // Take the placed piece back out of the stack
+            PieceTable.Shape shape = table.shape(frame.piece);
+            long[] masks = shape.masks[frame.placedX - shape.minX];
+            for(int i = 0, ny = frame.placedY + shape.bottom; i < masks.length; i++, ny++) {
+                byte[] row = ownRow(ny);
+                for(long m = masks[i]; m != 0; m &= m - 1) {
+                    int nx = Long.numberOfTrailingZeros(m);
+                    rowHash[ny] ^= key(nx, row[nx]);
+                    row[nx] = 0;
+                }
+                rows[ny] &= ~masks[i];
+            }
+            hash = frame.hash;
+            System.arraycopy(frame.colHeight, 0, colHeight, 0, colHeight.length);
+            maxHeight = frame.maxHeight;
+            filled = frame.filled;
+            aggregateHeight = frame.aggregateHeight;
+            bumpiness = frame.bumpiness;
+            wells = frame.wells;
+            contacts = frame.contacts;
+            wallContacts = frame.wallContacts;
+        }
+        curr = frame.piece;
+        currX = frame.x;
+        currY = frame.y;
+        lastRes = frame.lastRes;
+        lastAct = frame.lastAct;
+        rowsCleared = frame.rowsCleared;
+    }
+
+    /**
+     * Insert a cleared row back at the given y, shifting the rows above it up
+     * @param y the row number
+     * @param saved the types of the row's cells
+     * @param h the hash of the row
+     */
+    private void restoreRow(int y, byte[] saved, long h) {
+        int top = rows.length - 1;
+        // The top row is always empty after a clear, so its array can be reused
+        byte[] row = owned[top] ? cells[top] : new byte[getWidth()];
+        System.arraycopy(rows, y, rows, y + 1, top - y);
+        System.arraycopy(rowHash, y, rowHash, y + 1, top - y);
+        System.arraycopy(cells, y, cells, y + 1, top - y);
+        System.arraycopy(owned, y, owned, y + 1, top - y);
+        System.arraycopy(saved, 0, row, 0, row.length);
+        rows[y] = fullRow;
+        rowHash[y] = h;
+        cells[y] = row;
+        owned[y] = true;
+    }
+
+    /**
+     * An entry in the undo journal. Entries are reused between pushes, so recording an action
+     * does not allocate once the journal is deep enough.
+     */
+    private static final class Frame {
+        Piece piece;
+        int x, y;
+        Result lastRes;
+        Action lastAct;
+        int rowsCleared;
+        // Whether the action placed the piece, where it was placed, and the stack state from
+        // before it was
+        boolean placed;
+        int placedX, placedY;
+        int maxHeight;
+        long hash;
+        final int[] colHeight;
+        int filled, aggregateHeight, bumpiness, wells, contacts, wallContacts;
+        // The rows removed by the placement, lowest first
+        int clearedCount;
+        int[] clearedY = new int[4];
+        long[] clearedHash = new long[4];
+        byte[][] clearedCells;
+
+        Frame(int width) {
+            colHeight = new int[width];
+            clearedCells = new byte[clearedY.length][width];
+        }
+
+        /**
+         * Record the state of the given board that any action may change
+         * @param board the board
+         */
+        void save(TetrisBoard board) {
+            piece = board.curr;
+            x = board.currX;
+            y = board.currY;
+            lastRes = board.lastRes;
+            lastAct = board.lastAct;
+            rowsCleared = board.rowsCleared;
+            placed = false;
+            clearedCount = 0;
+        }
+
+        /**
+         * Record the stack state of the given board before a placement
+         * @param board the board
+         */
+        void saveStack(TetrisBoard board) {
+            placed = true;
+            placedX = board.currX;
+            placedY = board.currY;
+            maxHeight = board.maxHeight;
+            hash = board.hash;
+            System.arraycopy(board.colHeight, 0, colHeight, 0, colHeight.length);
+            filled = board.filled;
+            aggregateHeight = board.aggregateHeight;
+            bumpiness = board.bumpiness;
+            wells = board.wells;
+            contacts = board.contacts;
+            wallContacts = board.wallContacts;
+        }
+
+        /**
+         * Record a row about to be removed by a placement
+         * @param y the row number
+         * @param row the types of the row's cells
+         * @param h the hash of the row
+         */
+        void saveRow(int y, byte[] row, long h) {
+            if(clearedCount == clearedY.length) {
+                clearedY = Arrays.copyOf(clearedY, clearedCount * 2);
+                clearedHash = Arrays.copyOf(clearedHash, clearedCount * 2);
+                clearedCells = Arrays.copyOf(clearedCells, clearedCount * 2);
+                for(int i = clearedCount; i < clearedCells.length; i++) {
+                    clearedCells[i] = new byte[row.length];
+                }
+            }
+            clearedY[clearedCount] = y;
+            clearedHash[clearedCount] = h;
+            System.arraycopy(row, 0, clearedCells[clearedCount++], 0, row.length);
+        }
+    }
+
     /**
      * Get the current piece
      * @return the current piece
      */
     @Override
     public Piece getCurrentPiece() {
-        return curr; 
+        return curr;
     }
 
     /**
@@ -328,7 +901,25 @@ public final class TetrisBoard implements Board {
      */
     @Override
     public Point getCurrentPiecePosition() {
-        return pos; 
+        return curr == null ? null : new Point(currX, currY);
+    }
+
+    /**
+     * Get the x value of the current piece's position
+     * @return the x value
+     */
+    @Override
+    public int getCurrentPieceX() {
+        return currX;
+    }
+
+    /**
+     * Get the y value of the current piece's position
+     * @return the y value
+     */
+    @Override
+    public int getCurrentPieceY() {
+        return currY;
     }
 
     /**
@@ -338,15 +929,38 @@ public final class TetrisBoard implements Board {
      */
     @Override
     public void nextPiece(Piece p, Point spawnPosition) {
+        nextPiece(p, spawnPosition.x, spawnPosition.y);
+    }
+
+    /**
+     * Add a piece to the board at the given position
+     * @param p the piece
+     * @param spawnX the x value of the position
+     * @param spawnY the y value of the position
+     */
+    @Override
+    public void nextPiece(Piece p, int spawnX, int spawnY) {
+        depth = 0;
+        // A piece that was never placed stays on the board where it was left
+        if(curr != null) {
+            set();
+        }
         curr = p;
-        pos = spawnPosition;
+        currX = spawnX;
+        currY = spawnY;
         // Check for out of bounds
         if(!check(0, 0)) {
             curr = null;
-            pos = null;
             throw new IllegalArgumentException("Spawn position out of bounds");
         }
-        set(p.getType());
+        if(events && GameEvents.SPAWN.isEnabled()) {
+            GameEvents.Spawn event = new GameEvents.Spawn();
+            event.piece = p.getType().name();
+            event.x = spawnX;
+            event.y = spawnY;
+            event.stackHeight = maxHeight;
+            event.commit();
+        }
     }
 
     /**
@@ -362,14 +976,65 @@ public final class TetrisBoard implements Board {
         TetrisBoard b = (TetrisBoard) other;
         // Check for the same width and height
         if(b.getWidth() != getWidth() || b.getHeight() != getHeight()) return false;
-        // Check each element
-        for(int x = 0; x < getWidth(); x++) {
-            for(int y = 0; y < getHeight(); y++) {
+        // Boards with different hashes can't be equal
+        if(getHash() != b.getHash()) return false;
+        // Check each row, including the current pieces
+        for(int y = 0; y < getHeight(); y++) {
+            long mask = rows[y] | pieceRow(y);
+            if(mask != (b.rows[y] | b.pieceRow(y)))
+                return false;
+            for(; mask != 0; mask &= mask - 1) {
+                int x = Long.numberOfTrailingZeros(mask);
                 if(getGrid(x, y) != b.getGrid(x, y))
                     return false;
             }
         }
-        return true; 
+        return true;
+    }
+
+    /**
+     * Get a hash code consistent with equals
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+        long h = getHash();
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Get the 64-bit Zobrist hash of the grid, including the current piece. Equal boards have
+     * equal hashes, and boards with different grids almost never do.
+     * @return the hash
+     */
+    public long getHash() {
+        if(curr == null) return hash;
+        // Overlay the current piece on the rows it covers
+        long h = hash;
+        byte val = (byte) (curr.getType().ordinal() + 1);
+        PieceTable.Shape shape = table.shape(curr);
+        long[] masks = shape.masks[currX - shape.minX];
+        for(int i = 0, ny = currY + shape.bottom; i < masks.length; i++, ny++) {
+            long piece = 0;
+            for(long m = masks[i]; m != 0; m &= m - 1) {
+                piece ^= key(Long.numberOfTrailingZeros(m), val);
+            }
+            h ^= rowKey(rowHash[ny], ny) ^ rowKey(rowHash[ny] ^ piece, ny);
+        }
+        return h;
+    }
+
+    /**
+     * Get the cells of the given row covered by the current piece
+     * @param y the row number
+     * @return the bitmask of covered cells
+     */
+    private long pieceRow(int y) {
+        if(curr == null) return 0;
+        PieceTable.Shape shape = table.shape(curr);
+        int i = y - currY - shape.bottom;
+        if(i < 0 || i > shape.top - shape.bottom) return 0;
+        return shape.masks[currX - shape.minX][i];
     }
 
     /**
@@ -378,7 +1043,7 @@ public final class TetrisBoard implements Board {
      */
     @Override
     public Result getLastResult() {
-        return lastRes; 
+        return lastRes;
     }
 
     /**
@@ -387,7 +1052,7 @@ public final class TetrisBoard implements Board {
      */
     @Override
     public Action getLastAction() {
-        return lastAct; 
+        return lastAct;
     }
 
     /**
@@ -396,7 +1061,7 @@ public final class TetrisBoard implements Board {
      */
     @Override
     public int getRowsCleared() {
-        return rowsCleared; 
+        return rowsCleared;
     }
 
     /**
@@ -405,7 +1070,7 @@ public final class TetrisBoard implements Board {
      */
     @Override
     public int getWidth() {
-        return board.length; 
+        return colHeight.length;
     }
 
     /**
@@ -414,7 +1079,7 @@ public final class TetrisBoard implements Board {
      */
     @Override
     public int getHeight() {
-        return board[0].length; 
+        return rows.length;
     }
 
     /**
@@ -423,7 +1088,7 @@ public final class TetrisBoard implements Board {
      */
     @Override
     public int getMaxHeight() {
-        return maxHeight; 
+        return maxHeight;
     }
 
     /**
@@ -434,12 +1099,20 @@ public final class TetrisBoard implements Board {
      */
     @Override
     public int dropHeight(Piece piece, int x) {
+        return dropHeight(table.shape(piece), x);
+    }
+
+    /**
+     * Get the y value where a piece with the given shape would land if dropped at the given x
+     * @param shape the shape of the piece
+     * @param x the column to drop at
+     * @return the landing y value
+     */
+    int dropHeight(PieceTable.Shape shape, int x) {
+        int[] skirt = shape.skirt;
         int max = Integer.MIN_VALUE;
-        for(int i = 0; i < piece.getWidth(); i++) {
-            int dy = piece.getSkirt()[i];
-            if(dy == Integer.MAX_VALUE) continue;
-            int height = getColumnHeight(x + i) - dy;
-            max = Math.max(max, height);
+        for(int i = 0, col = x + shape.left; i < skirt.length; i++, col++) {
+            max = Math.max(max, colHeight[col] - skirt[i]);
         }
         return max;
     }
@@ -451,7 +1124,7 @@ public final class TetrisBoard implements Board {
      */
     @Override
     public int getColumnHeight(int x) {
-        return colHeight[x]; 
+        return colHeight[x];
     }
 
     /**
@@ -461,7 +1134,7 @@ public final class TetrisBoard implements Board {
      */
     @Override
     public int getRowWidth(int y) {
-        return rowWidth[y]; 
+        return Long.bitCount(rows[y]);
     }
 
     /**
@@ -472,6 +1145,13 @@ public final class TetrisBoard implements Board {
      */
     @Override
     public Piece.PieceType getGrid(int x, int y) {
-        return board[x][y]; 
+        if(x < 0 || y < 0 || x >= getWidth() || y >= getHeight())
+            return null;
+        if(cells[y][x] != 0)
+            return TYPES[cells[y][x] - 1];
+        // Overlay the current piece on the stack
+        if((pieceRow(y) & 1L << x) != 0)
+            return curr.getType();
+        return null;
     }
 }
@@ -0,0 +1,204 @@
+package assignment;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A cache of board evaluations keyed by a board's hash, so that a search that reaches the same
+ * board by different moves, or searches the same board again on the next tick, only evaluates
+ * it once. The table holds a fixed number of entries in buckets of two: when a bucket is full,
+ * the entry searched less deeply is evicted. Entries are immutable and stored atomically, so
+ * one table can be shared by searches on many threads.
+ */
+public final class TranspositionTable {
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder();
+    private final LongAdder stores = new LongAdder(), evictions = new LongAdder();
+
+    /**
+     * Construct a table holding at most the given number of entries, rounded up to a power
+     * of two
+     * @param capacity the number of entries
+     */
+    public TranspositionTable(int capacity) {
+        if(capacity < 2 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 2 and 2^30");
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        slots = new AtomicReferenceArray<>(size);
+        mask = size - 2;
+    }
+
+    /**
+     * Look up the evaluation stored for the given key
+     * @param key the key, usually a board's hash
+     * @return the entry, or null if there is none
+     */
+    public Entry get(long key) {
+        int i = index(key);
+        Entry e = slots.get(i);
+        if(e == null || e.key != key) {
+            e = slots.get(i + 1);
+            if(e == null || e.key != key) {
+                misses.increment();
+                return null;
+            }
+        }
+        hits.increment();
+        return e;
+    }
+
+    /**
+     * Store an evaluation, replacing any entry for the same key
+     * @param key the key, usually a board's hash
+     * @param depth how deep the evaluation searched
+     * @param rowsCleared the rows cleared on the way to the evaluated board
+     * @param score the score of the evaluated board
+     * @param move the best move found, or null
+     */
+    public void put(long key, int depth, int rowsCleared, double score, Board.Action move) {
+        Entry e = new Entry(key, depth, rowsCleared, score, move);
+        int i = index(key);
+        Entry first = slots.get(i), second = slots.get(i + 1);
+        stores.increment();
+        // The first slot keeps the deeper of the two entries; the second takes whatever is left
+        if(first == null || first.key == key) {
+            slots.set(i, e);
+        }
+        else if(second == null || second.key == key) {
+            slots.set(i + 1, e);
+        }
+        else if(depth >= first.depth) {
+            slots.set(i + 1, first);
+            slots.set(i, e);
+            evictions.increment();
+        }
+        else {
+            slots.set(i + 1, e);
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Remove every entry and reset the counters
+     */
+    public void clear() {
+        for(int i = 0; i < slots.length(); i++) {
+            slots.set(i, null);
+        }
+        hits.reset();
+        misses.reset();
+        stores.reset();
+        evictions.reset();
+    }
+
+    /**
+     * Get the number of entries the table can hold
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    /**
+     * Get the number of lookups that found an entry
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of lookups that found no entry
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the number of entries stored
+     * @return the number of stores
+     */
+    public long getStores() {
+        return stores.sum();
+    }
+
+    /**
+     * Get the number of entries evicted to make room for others
+     * @return the number of evictions
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        long h = getHits(), m = getMisses();
+        return String.format("%d entries: %d hits, %d misses (%.1f%% hit rate), %d stores, %d evictions",
+                getCapacity(), h, m, h + m == 0 ? 0.0 : 100.0 * h / (h + m), getStores(), getEvictions());
+    }
+
+    /**
+     * Get the first slot of the bucket for a key
+     * @param key the key
+     * @return the index of the slot
+     */
+    private int index(long key) {
+        // Zobrist hashes are already well mixed, but other keys may not be
+        long h = key ^ (key >>> 29);
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * A stored evaluation
+     */
+    public static final class Entry {
+        private final long key;
+        private final int depth;
+        private final int rowsCleared;
+        private final double score;
+        private final Board.Action move;
+
+        Entry(long key, int depth, int rowsCleared, double score, Board.Action move) {
+            this.key = key;
+            this.depth = depth;
+            this.rowsCleared = rowsCleared;
+            this.score = score;
+            this.move = move;
+        }
+
+        /**
+         * Get how deep the evaluation searched
+         * @return the depth
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * Get the rows cleared on the way to the evaluated board
+         * @return the rows cleared
+         */
+        public int getRowsCleared() {
+            return rowsCleared;
+        }
+
+        /**
+         * Get the score of the evaluated board
+         * @return the score
+         */
+        public double getScore() {
+            return score;
+        }
+
+        /**
+         * Get the best move found
+         * @return the move, or null if none was stored
+         */
+        public Board.Action getMove() {
+            return move;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package assignment;
+
+import java.util.SplittableRandom;
+
+/**
+ * A PieceGenerator that picks each piece at random out of the 7 canonical tetris pieces,
+ * independently of the pieces before it.
+ */
+public final class UniformPieceGenerator extends LookaheadGenerator {
+
+    /**
+     * Construct a generator with the given seed
+     * @param seed the seed
+     */
+    public UniformPieceGenerator(long seed) {
+        this(new SplittableRandom(seed));
+    }
+
+    /**
+     * Construct a generator using the given random generator
+     * @param random the random generator
+     */
+    private UniformPieceGenerator(SplittableRandom random) {
+        super(random);
+    }
+
+    @Override
+    int generate() {
+        return random.nextInt(Game.PIECES.length);
+    }
+
+    @Override
+    public synchronized PieceGenerator split() {
+        return new UniformPieceGenerator(random.split());
+    }
+}
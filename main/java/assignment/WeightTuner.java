@@ -0,0 +1,150 @@
+package assignment;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.LongFunction;
+
+/**
+ * WeightTuner searches for better weights for FunBrain with a genetic algorithm. Each
+ * generation, every candidate plays the same seeded headless games, spread across all cores
+ * by a GameRunner, and is scored by the rows it clears per game. The best quarter are kept as
+ * they are, and the rest of the next generation are bred from the better half: each weight is
+ * taken from one of two parents and sometimes nudged at random. Every generation plays new
+ * seeds, so weights that only suit one set of games don't last.
+ *
+ * A tuning run is repeatable: the same seed gives the same weights.
+ */
+public final class WeightTuner {
+    // How far a mutation moves a weight, relative to its size
+    private static final double MUTATION = 0.25;
+    // The chance that a weight is mutated when breeding
+    private static final double MUTATION_RATE = 0.3;
+
+    private final GameRunner runner;
+    private final LongFunction<? extends PieceGenerator> generators;
+    private final int population, games, maxPieces;
+    private final Random random;
+
+    /**
+     * Construct a tuner
+     * @param runner the runner to play games on
+     * @param generators makes the generator of pieces for each game from its seed
+     * @param population the number of candidates in each generation
+     * @param games the number of games each candidate plays per generation
+     * @param maxPieces the number of pieces after which a game is stopped
+     * @param seed the seed of the whole run
+     */
+    public WeightTuner(GameRunner runner, LongFunction<? extends PieceGenerator> generators,
+                       int population, int games, int maxPieces, long seed) {
+        if(population < 2) throw new IllegalArgumentException("population must be at least 2");
+        if(games < 1) throw new IllegalArgumentException("games must be positive");
+        this.runner = runner;
+        this.generators = generators;
+        this.population = population;
+        this.games = games;
+        this.maxPieces = maxPieces;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Score the given weights by the rows a FunBrain using them clears per game
+     * @param weights the weights
+     * @param seed the master seed of the games
+     * @return the average rows cleared per game
+     */
+    public double fitness(Weights weights, long seed) {
+        GameRunner.Summary summary = runner.run(() -> {
+            FunBrain brain = new FunBrain();
+            brain.setWeights(weights);
+            return brain;
+        }, generators, games, maxPieces, seed);
+        return (double) summary.getTotalLines() / games;
+    }
+
+    /**
+     * Tune the weights for the given number of generations
+     * @param start the weights to start from
+     * @param generations the number of generations
+     * @param log where to print the best of each generation, or null
+     * @return the best weights of the last generation
+     */
+    public Weights tune(Weights start, int generations, PrintStream log) {
+        double[][] candidates = new double[population][];
+        candidates[0] = start.toArray();
+        for(int i = 1; i < population; i++) {
+            candidates[i] = mutate(start.toArray(), 1);
+        }
+        double[] fitness = new double[population];
+        Integer[] ranking = new Integer[population];
+        Weights best = start;
+        for(int g = 0; g < generations; g++) {
+            // Every candidate plays the same games, so they are compared fairly
+            long seed = random.nextLong();
+            for(int i = 0; i < population; i++) {
+                fitness[i] = fitness(new Weights(candidates[i]), seed);
+                ranking[i] = i;
+            }
+            Arrays.sort(ranking, (a, b) -> Double.compare(fitness[b], fitness[a]));
+            best = new Weights(candidates[ranking[0]]);
+            if(log != null) {
+                log.printf("generation %d: %.1f lines per game with %s%n", g, fitness[ranking[0]], best);
+            }
+            if(g == generations - 1) break;
+
+            // Keep the best quarter and breed the rest from the better half
+            double[][] next = new double[population][];
+            int elite = Math.max(1, population / 4), parents = Math.max(2, population / 2);
+            for(int i = 0; i < elite; i++) {
+                next[i] = candidates[ranking[i]];
+            }
+            for(int i = elite; i < population; i++) {
+                double[] a = candidates[ranking[random.nextInt(parents)]];
+                double[] b = candidates[ranking[random.nextInt(parents)]];
+                double[] child = new double[a.length];
+                for(int k = 0; k < child.length; k++) {
+                    child[k] = random.nextBoolean() ? a[k] : b[k];
+                }
+                next[i] = mutate(child, MUTATION_RATE);
+            }
+            candidates = next;
+        }
+        return best;
+    }
+
+    /**
+     * Nudge some of the given weights at random, keeping them from going negative
+     * @param values the weights, which are changed in place
+     * @param rate the chance that each weight is changed
+     * @return the weights
+     */
+    private double[] mutate(double[] values, double rate) {
+        for(int k = 0; k < values.length; k++) {
+            if(random.nextDouble() < rate) {
+                // Weights of 0 can still grow
+                values[k] = Math.max(0, values[k] + random.nextGaussian() * MUTATION * (Math.abs(values[k]) + 1));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Tune FunBrain's weights and print the best of each generation. The arguments are the
+     * number of generations, the population, the games per candidate, the pieces per game, the
+     * seed and "bag" to deal pieces from a 7-bag, all optional.
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        int generations = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int population = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int games = args.length > 2 ? Integer.parseInt(args[2]) : 32;
+        int maxPieces = args.length > 3 ? Integer.parseInt(args[3]) : 500;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 0;
+        boolean bag = args.length > 5 && args[5].equals("bag");
+        GameRunner runner = new GameRunner();
+        WeightTuner tuner = new WeightTuner(runner, bag ? BagPieceGenerator::new : UniformPieceGenerator::new,
+                population, games, maxPieces, seed);
+        System.out.println("best: " + tuner.tune(Weights.DEFAULT, generations, System.out));
+        runner.shutdown();
+    }
+}
@@ -0,0 +1,71 @@
+package assignment;
+
+import java.util.Arrays;
+
+/**
+ * The weights FunBrain scores boards with, as a vector that can be tuned. A board scores
+ * (contacts + wall contacts * wall - holes * gap - bumpiness * bumpiness - wells * well)
+ * * (600 - (max height * maxHeight - average of the three lowest columns * minHeight)).
+ */
+public final class Weights {
+    // The names of the weights, in the order of the vector
+    public static final String[] NAMES = {"wall", "gap", "maxHeight", "minHeight", "bumpiness", "well"};
+    // The weights FunBrain has always used; bumpiness and wells were not counted
+    public static final Weights DEFAULT = new Weights(3, 40, 10, 20, 0, 0);
+
+    final double wall, gap, maxHeight, minHeight, bumpiness, well;
+
+    /**
+     * Construct weights from a vector
+     * @param values the weights, in the order of NAMES
+     */
+    public Weights(double... values) {
+        if(values.length != NAMES.length) {
+            throw new IllegalArgumentException("Expected " + NAMES.length + " weights");
+        }
+        wall = values[0];
+        gap = values[1];
+        maxHeight = values[2];
+        minHeight = values[3];
+        bumpiness = values[4];
+        well = values[5];
+    }
+
+    /**
+     * Get the weights as a vector
+     * @return a new array of the weights, in the order of NAMES
+     */
+    public double[] toArray() {
+        return new double[] {wall, gap, maxHeight, minHeight, bumpiness, well};
+    }
+
+    /**
+     * Check if these weights are equal to the given Object
+     * @param other the Object to compare against
+     * @return whether the Object is equal
+     */
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Weights && Arrays.equals(toArray(), ((Weights) other).toArray());
+    }
+
+    /**
+     * Get a hash code consistent with equals
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        double[] values = toArray();
+        for(int i = 0; i < values.length; i++) {
+            if(i > 0) sb.append(", ");
+            sb.append(NAMES[i]).append('=').append(String.format("%.3f", values[i]));
+        }
+        return sb.toString();
+    }
+}
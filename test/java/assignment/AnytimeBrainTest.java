@@ -0,0 +1,69 @@
+import assignment.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static assignment.Board.Action.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnytimeBrainTest {
+
+    @Test
+    void budget() {
+        AnytimeBrain brain = new AnytimeBrain();
+        // Half of a tick at the slowest speed
+        assertEquals(JTetris.DELAY * 500_000L, brain.getTimeBudget());
+        brain.setTickDelay(100);
+        assertEquals(50_000_000L, brain.getTimeBudget());
+        brain.setTimeBudget(-5);
+        assertEquals(0, brain.getTimeBudget());
+        assertThrows(IllegalArgumentException.class, () -> new AnytimeBrain(null, 1));
+    }
+
+    @Test
+    void plan() {
+        Game game = new Game();
+        game.start(new BagPieceGenerator(8));
+        AnytimeBrain brain = new AnytimeBrain(game, 1);
+        brain.setTimeBudget(Long.MAX_VALUE / 2);
+        for(int i = 0; i < 20 && game.isGameOn(); i++) {
+            Board current = game.getBoard();
+            List<Board.Action> plan = brain.plan(current);
+            // With all the time it needs, it sees the next piece too
+            assertEquals(2, brain.getDepthSearched());
+            Board copy = new TetrisBoard(current);
+            Board.Result result = null;
+            for(Board.Action move : plan) {
+                assertNotEquals(Board.Result.OUT_BOUNDS, result);
+                result = copy.move(move);
+            }
+            assertEquals(Board.Result.PLACE, result);
+            for(Board.Action move : plan) {
+                game.tick(move);
+            }
+        }
+    }
+
+    @Test
+    void deadline() {
+        // Out of time, it still places the current piece as well as it can
+        Game game = new Game();
+        game.start(new BagPieceGenerator(2));
+        AnytimeBrain brain = new AnytimeBrain(game, 3);
+        brain.setTimeBudget(0);
+        AnytimeBrain single = new AnytimeBrain();
+        single.setTimeBudget(0);
+        for(int i = 0; i < 10 && game.isGameOn(); i++) {
+            List<Board.Action> plan = brain.plan(game.getBoard());
+            assertTrue(brain.getDepthSearched() >= 1 && brain.getDepthSearched() < 4);
+            single.plan(game.getBoard());
+            assertEquals(1, single.getDepthSearched());
+            for(Board.Action move : plan) {
+                game.tick(move);
+            }
+        }
+
+        assertEquals(List.of(DROP), brain.plan(new TetrisBoard(10, 24)));
+        assertEquals(0, brain.getDepthSearched());
+    }
+}
@@ -0,0 +1,165 @@
+import assignment.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.util.Random;
+
+import static assignment.Board.Action.*;
+import static assignment.Piece.PieceType.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardFeaturesTest {
+    TetrisBoard board;
+
+    @BeforeEach
+    void setUp() {
+        board = new TetrisBoard(6, 10);
+    }
+
+    @Test
+    void empty() {
+        BoardFeatures features = board.getFeatures();
+        assertEquals(0, features.getFilled());
+        assertEquals(0, features.getHoles());
+        assertEquals(0, features.getAggregateHeight());
+        assertEquals(0, features.getBumpiness());
+        assertEquals(0, features.getWells());
+        assertEquals(0, features.getContacts());
+        assertEquals(0, features.getWallContacts());
+    }
+
+    @Test
+    void place() {
+        // A T pointing down leaves a hole on either side of its stem
+        board.nextPiece(new TetrisPiece(T).clockwisePiece().clockwisePiece(), new Point(0, 0));
+        board.move(DROP);
+        BoardFeatures features = board.getFeatures();
+        assertEquals(4, features.getFilled());
+        assertEquals(2, features.getHoles());
+        assertEquals(1, features.getColumnHoles(0));
+        assertEquals(0, features.getColumnHoles(1));
+        assertEquals(1, features.getHoleDepth(2));
+        assertEquals(6, features.getAggregateHeight());
+        assertEquals(2, features.getBumpiness());
+        assertEquals(0, features.getWells());
+        assertEquals(3, features.getContacts());
+        // The left side of the T and the bottom of its stem
+        assertEquals(2, features.getWallContacts());
+        check(board);
+
+        // A standing stick makes a well on either side of it
+        board.nextPiece(new TetrisPiece(STICK).clockwisePiece(), new Point(2, 0));
+        board.move(DROP);
+        assertEquals(8, features.getFilled());
+        assertEquals(10, features.getAggregateHeight());
+        assertEquals(10, features.getBumpiness());
+        assertEquals(2, features.getWellDepth(3));
+        assertEquals(4, features.getWellDepth(5));
+        assertEquals(6, features.getWells());
+        assertEquals(6, features.getContacts());
+        assertEquals(3, features.getWallContacts());
+        check(board);
+    }
+
+    @Test
+    void clear() {
+        board.nextPiece(new TetrisPiece(SQUARE), new Point(0, 0));
+        board.move(DROP);
+        board.nextPiece(new TetrisPiece(SQUARE), new Point(2, 0));
+        board.move(DROP);
+        board.nextPiece(new TetrisPiece(STICK).clockwisePiece(), new Point(2, 0));
+        board.move(DROP);
+        check(board);
+        board.nextPiece(new TetrisPiece(STICK).clockwisePiece(), new Point(3, 0));
+        board.move(DROP);
+        assertEquals(2, board.getRowsCleared());
+        assertEquals(4, board.getFeatures().getFilled());
+        check(board);
+    }
+
+    @Test
+    void random() {
+        // The features are kept right through moves, copies, undos and clears
+        Random random = new Random(17);
+        Piece.PieceType[] types = Piece.PieceType.values();
+        Board.Action[] actions = Board.Action.values();
+        for(int game = 0; game < 20; game++) {
+            TetrisBoard b = new TetrisBoard(4 + random.nextInt(7), 12);
+            for(int i = 0; i < 300; i++) {
+                if(b.getCurrentPiece() == null) {
+                    try {
+                        b.nextPiece(new TetrisPiece(types[random.nextInt(types.length)]),
+                                new Point(random.nextInt(b.getWidth() - 2), b.getHeight() - 4));
+                    } catch(IllegalArgumentException ex) {
+                        break;
+                    }
+                }
+                Board.Action act = actions[random.nextInt(actions.length)];
+                switch(random.nextInt(4)) {
+                    case 0:
+                        b = (TetrisBoard) b.testMove(act);
+                        break;
+                    case 1:
+                        b.push(act);
+                        check(b);
+                        b.pop();
+                        break;
+                    default:
+                        b.move(act);
+                }
+                check(b);
+            }
+        }
+    }
+
+    /**
+     * Check the features of a board against a count of its grid, with any piece in the air
+     * left out
+     */
+    private static void check(TetrisBoard b) {
+        TetrisBoard stack = new TetrisBoard(b.getWidth(), b.getHeight());
+        int w = b.getWidth(), h = b.getHeight();
+        boolean[][] full = new boolean[w][h];
+        Piece piece = b.getCurrentPiece();
+        for(int x = 0; x < w; x++) {
+            for(int y = 0; y < h; y++) {
+                full[x][y] = b.getGrid(x, y) != null;
+            }
+        }
+        if(piece != null) {
+            for(Point p : piece.getBody()) {
+                full[b.getCurrentPieceX() + p.x][b.getCurrentPieceY() + p.y] = false;
+            }
+        }
+        int filled = 0, holes = 0, aggregate = 0, bumpiness = 0, wells = 0, contacts = 0, walls = 0;
+        for(int x = 0; x < w; x++) {
+            int height = b.getColumnHeight(x);
+            aggregate += height;
+            if(x + 1 < w) bumpiness += Math.abs(height - b.getColumnHeight(x + 1));
+            int left = x == 0 ? h : b.getColumnHeight(x - 1);
+            int right = x == w - 1 ? h : b.getColumnHeight(x + 1);
+            wells += Math.max(Math.min(left, right) - height, 0);
+            for(int y = 0; y < h; y++) {
+                if(!full[x][y]) {
+                    if(y < height) holes++;
+                    continue;
+                }
+                filled++;
+                if(x + 1 < w && full[x + 1][y]) contacts++;
+                if(y + 1 < h && full[x][y + 1]) contacts++;
+                if(x == 0) walls++;
+                if(x == w - 1) walls++;
+                if(y == 0) walls++;
+            }
+        }
+        BoardFeatures features = b.getFeatures();
+        assertEquals(filled, features.getFilled());
+        assertEquals(holes, features.getHoles());
+        assertEquals(aggregate, features.getAggregateHeight());
+        assertEquals(bumpiness, features.getBumpiness());
+        assertEquals(wells, features.getWells());
+        assertEquals(contacts, features.getContacts());
+        assertEquals(walls, features.getWallContacts());
+    }
+}
@@ -3,6 +3,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.awt.*;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import static assignment.Piece.PieceType.*;
 import static assignment.Board.Action.*;
 import static java.time.Clock.tick;
@@ -66,4 +68,67 @@ class FunBrainTest {
         
         assertEquals(-5220, brain.scoreBoard(board));
     }
-}
\ No newline at end of file
+
+    @Test
+    void reuseBoards() {
+        // Searching on a scratch board makes the same decisions as searching on copies
+        FunBrain copies = new FunBrain(false);
+        for(long seed = 0; seed < 5; seed++) {
+            Game game = new Game();
+            game.start(seed);
+            while(game.isGameOn() && game.getCount() < 150) {
+                game.tick(DOWN);
+                if(!game.isGameOn()) break;
+                TetrisBoard current = (TetrisBoard) game.getBoard();
+                long hash = current.getHash();
+                Board before = new TetrisBoard(current);
+                Board.Action move = brain.nextMove(current);
+                assertEquals(copies.nextMove(current), move);
+                // and leaves the board as it was
+                assertEquals(hash, current.getHash());
+                assertEquals(before, current);
+                game.tick(move);
+            }
+        }
+    }
+
+    @Test
+    void parallel() {
+        // Scoring options in parallel picks the same moves as scoring them in order
+        ForkJoinPool pool = new ForkJoinPool(4);
+        FunBrain parallel = new FunBrain(pool);
+        for(long seed = 0; seed < 5; seed++) {
+            Game game = new Game(16, 20, 4);
+            game.start(seed);
+            while(game.isGameOn() && game.getCount() < 150) {
+                game.tick(DOWN);
+                if(!game.isGameOn()) break;
+                Board.Action move = brain.nextMove(game.getBoard());
+                assertEquals(move, parallel.nextMove(game.getBoard()));
+                game.tick(move);
+            }
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    void plan() {
+        // A plan starts with the next move and takes the piece all the way to where it lands
+        Game game = new Game();
+        game.start(3);
+        for(int i = 0; i < 60 && game.isGameOn(); i++) {
+            Board current = game.getBoard();
+            List<Board.Action> plan = brain.plan(current);
+            assertEquals(brain.nextMove(current), plan.get(0));
+            assertEquals(DROP, plan.get(plan.size() - 1));
+            Board copy = new TetrisBoard(current);
+            for(int j = 0; j < plan.size() - 1; j++) {
+                assertEquals(Board.Result.SUCCESS, copy.move(plan.get(j)));
+            }
+            assertEquals(Board.Result.PLACE, copy.move(DROP));
+            for(Board.Action move : plan) {
+                game.tick(move);
+            }
+        }
+    }
+}
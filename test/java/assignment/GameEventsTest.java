@@ -0,0 +1,100 @@
+import assignment.*;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameEventsTest {
+
+    @Test
+    void recordsGame() throws Exception {
+        Path file = Files.createTempFile("game", ".jfr");
+        Game game = new Game();
+        try (Recording recording = new Recording()) {
+            for (String name : new String[] {"PieceSpawn", "Place", "RowClear", "Rotation", "BrainDecision"}) {
+                recording.enable("assignment." + name);
+            }
+            recording.start();
+            game.start(3);
+            // A brain that searches on copies, whose moves must not be recorded
+            game.play(new FunBrain(false), 60);
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+
+        int spawns = 0, places = 0, cleared = 0, rotations = 0, decisions = 0;
+        for (RecordedEvent event : events) {
+            switch (event.getEventType().getName()) {
+                case "assignment.PieceSpawn":
+                    spawns++;
+                    break;
+                case "assignment.Place":
+                    places++;
+                    assertTrue(event.getInt("stackHeight") >= 0);
+                    break;
+                case "assignment.RowClear":
+                    int rows = event.getInt("rows");
+                    assertTrue(rows >= 1 && rows <= 4);
+                    cleared += rows;
+                    break;
+                case "assignment.Rotation":
+                    rotations++;
+                    assertTrue(event.getInt("kicksTried") >= 1);
+                    break;
+                case "assignment.BrainDecision":
+                    decisions++;
+                    assertTrue(event.getInt("candidates") > 0);
+                    assertEquals("FunBrain", event.getString("brain"));
+                    break;
+            }
+        }
+        assertEquals(game.getCount(), spawns);
+        assertTrue(places == game.getCount() || places == game.getCount() - 1);
+        assertEquals(game.getLines(), cleared);
+        assertTrue(rotations > 0);
+        assertTrue(decisions > places);
+    }
+
+    @Test
+    void allocatesNothingWhenNotRecording() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        FunBrain brain = new FunBrain();
+        Game game = new Game();
+        long allocated = 0, moves = 0;
+        for (int round = 0; round < 3; round++) {
+            // The first rounds warm up the brain, and each board sets aside rows on its first clear
+            game.start(round);
+            allocated = moves = 0;
+            while (game.isGameOn() && game.getCount() < 100) {
+                Board board = game.getBoard();
+                boolean measure = game.getLines() > 0;
+                long before = threads.getThreadAllocatedBytes(thread);
+                Board.Action move = brain.nextMove(board);
+                Board.Result result = board.move(move);
+                if (measure) {
+                    allocated += threads.getThreadAllocatedBytes(thread) - before;
+                    moves++;
+                }
+                if (result == Board.Result.PLACE) {
+                    game.tick(Board.Action.DOWN);
+                }
+            }
+        }
+        // The JVM itself now and then allocates a few hundred bytes on this thread while it is
+        // being measured, so allow well under what a single event would take on average
+        assertTrue(moves > 0);
+        assertTrue(allocated / moves < 16, allocated + " bytes in " + moves + " moves");
+    }
+}
@@ -0,0 +1,72 @@
+import assignment.*;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameMetricsTest {
+
+    @Test
+    void countsGame() {
+        GameMetrics metrics = GameMetrics.get();
+        metrics.setEnabled(true);
+        metrics.reset();
+        Game game = new Game();
+        game.start(5);
+        game.play(new FunBrain(), 100);
+
+        // Every piece but the one in the air has been placed
+        long placed = metrics.getPiecesPlaced();
+        assertTrue(placed == game.getCount() || placed == game.getCount() - 1);
+        assertEquals(game.getLines(), metrics.getLinesCleared());
+        long[] clears = metrics.getClearsBySize();
+        assertEquals(4, clears.length);
+        assertEquals(game.getLines(), clears[0] + 2 * clears[1] + 3 * clears[2] + 4 * clears[3]);
+
+        // The game moves down once before each decision
+        Map<String, Long> counts = metrics.getMoveCounts();
+        long downs = counts.getOrDefault("DOWN/SUCCESS", 0L) + counts.getOrDefault("DOWN/PLACE", 0L);
+        assertTrue(downs >= metrics.getDecisions());
+        assertTrue(metrics.getDecisions() > 0);
+        long[] histogram = metrics.getDecisionLatencyHistogram();
+        long total = 0;
+        for (long n : histogram) total += n;
+        assertEquals(metrics.getDecisions(), total);
+        assertTrue(metrics.getMaxDecisionMicros() >= metrics.getMeanDecisionMicros());
+        assertTrue(metrics.getMeanDecisionMicrosByHeight().length > 0);
+        assertTrue(metrics.getMovesPerSecondByAction().get("DOWN") > 0);
+    }
+
+    @Test
+    void disabled() {
+        GameMetrics metrics = GameMetrics.get();
+        metrics.setEnabled(false);
+        metrics.reset();
+        Game game = new Game();
+        game.start(5);
+        game.play(new FunBrain(), 20);
+        assertEquals(0, metrics.getPiecesPlaced());
+        assertEquals(0, metrics.getDecisions());
+        assertTrue(metrics.getMoveCounts().isEmpty());
+        metrics.setEnabled(true);
+    }
+
+    @Test
+    void publishedOverJmx() throws Exception {
+        GameMetrics metrics = GameMetrics.get();
+        metrics.setEnabled(true);
+        metrics.reset();
+        Game game = new Game();
+        game.start(6);
+        game.play(new FunBrain(), 10);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(GameMetrics.NAME);
+        assertTrue(server.isRegistered(name));
+        assertEquals(metrics.getPiecesPlaced(), server.getAttribute(name, "PiecesPlaced"));
+        assertEquals(true, server.getAttribute(name, "Enabled"));
+    }
+}
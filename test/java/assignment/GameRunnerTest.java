@@ -0,0 +1,41 @@
+import assignment.*;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameRunnerTest {
+
+    @Test
+    void run() {
+        GameRunner serial = new GameRunner(1), parallel = new GameRunner(4);
+        GameRunner.Summary a = serial.run(FunBrain::new, 8, 200, 42);
+        GameRunner.Summary b = parallel.run(FunBrain::new, 8, 200, 42);
+        serial.shutdown();
+        parallel.shutdown();
+
+        // The same seed plays the same games however they are scheduled
+        assertEquals(8, a.getGames());
+        for(int i = 0; i < 8; i++) {
+            assertTrue(a.getPieces(i) > 0 && a.getPieces(i) <= 200);
+            assertEquals(a.getPieces(i), b.getPieces(i));
+            assertEquals(a.getLines(i), b.getLines(i));
+        }
+        assertEquals(a.getTotalPieces(), b.getTotalPieces());
+        assertEquals(a.getTotalLines(), b.getTotalLines());
+        assertTrue(a.getTotalLines() > 0);
+        assertTrue(a.getNanos() > 0);
+
+        // Game i gets the same seed however many games are run
+        Game game = GameRunner.play(new FunBrain(), 200, GameRunner.seeds(42, 3)[2]);
+        assertEquals(a.getPieces(2), Math.min(game.getCount(), 200));
+        assertEquals(a.getLines(2), game.getLines());
+    }
+
+    @Test
+    void seeds() {
+        assertArrayEquals(GameRunner.seeds(7, 10), GameRunner.seeds(7, 10));
+        assertEquals(GameRunner.seeds(7, 10)[4], GameRunner.seeds(7, 5)[4]);
+        assertNotEquals(GameRunner.seeds(7, 1)[0], GameRunner.seeds(8, 1)[0]);
+        assertThrows(IllegalArgumentException.class, () -> new GameRunner(0));
+    }
+}
@@ -0,0 +1,72 @@
+import assignment.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static assignment.Board.Action.*;
+import static assignment.Board.Result.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameTest {
+    Game game;
+
+    @BeforeEach
+    void setUp() {
+        game = new Game();
+    }
+
+    @Test
+    void start() {
+        assertFalse(game.isGameOn());
+        assertEquals(NO_PIECE, game.tick(DOWN));
+
+        game.start();
+        assertTrue(game.isGameOn());
+        assertEquals(1, game.getCount());
+        Board board = game.getBoard();
+        assertNotNull(board.getCurrentPiece());
+        assertEquals(Game.HEIGHT, board.getCurrentPieceY());
+        assertEquals(Game.WIDTH, board.getWidth());
+        assertEquals(Game.HEIGHT + Game.TOP_SPACE, board.getHeight());
+    }
+
+    @Test
+    void tick() {
+        game.start();
+        assertEquals(SUCCESS, game.tick(DOWN));
+        assertEquals(PLACE, game.tick(DROP));
+        assertEquals(2, game.getCount());
+        assertNotNull(game.getBoard().getCurrentPiece());
+
+        game.stop();
+        assertFalse(game.isGameOn());
+        assertEquals(NO_PIECE, game.tick(DROP));
+        assertEquals(2, game.getCount());
+    }
+
+    @Test
+    void gameOver() {
+        // Dropping every piece in the middle stacks them up into the top space
+        game.start();
+        int ticks = 0;
+        while(game.isGameOn()) {
+            game.tick(DROP);
+            assertTrue(++ticks < Game.HEIGHT * 4);
+        }
+        assertTrue(game.getBoard().getMaxHeight() > Game.HEIGHT || game.getBoard().getCurrentPiece() == null);
+        assertEquals(NO_PIECE, game.tick(DROP));
+    }
+
+    @Test
+    void play() {
+        game.start();
+        int pieces = game.play(new FunBrain(), 100);
+        assertTrue(pieces > 1 && pieces <= 100);
+        // The game only stops early if the brain loses
+        if(pieces < 100) assertFalse(game.isGameOn());
+        if(game.isGameOn()) {
+            assertEquals(100, pieces);
+            assertTrue(game.getBoard().getMaxHeight() <= Game.HEIGHT);
+            assertEquals(101, game.getCount());
+        }
+    }
+}
@@ -0,0 +1,147 @@
+import assignment.*;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.SwingUtilities;
+
+import static assignment.Board.Action.*;
+import static assignment.Board.Result.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class JBrainTetrisTest {
+
+    /**
+     * Keep a board a plan was made for, and the board the plan is meant to leave once the
+     * piece is placed
+     * @param plans the boards kept so far
+     * @param board the board planned for
+     * @param plan the plan
+     * @param gravity whether the plan was made for the piece falling before each move
+     */
+    private static void record(List<Board[]> plans, Board board, List<Board.Action> plan, boolean gravity) {
+        Board meant = new TetrisBoard(board);
+        for (Board.Action move : plan) {
+            if (gravity && meant.move(DOWN) == PLACE) break;
+            if (meant.move(move) == PLACE) break;
+        }
+        synchronized (plans) {
+            plans.add(new Board[] {new TetrisBoard(board), meant});
+        }
+    }
+
+    /**
+     * An AnytimeBrain that keeps the boards it plans for
+     */
+    static class RecordingAnytimeBrain extends AnytimeBrain {
+        final List<Board[]> plans = new ArrayList<>();
+
+        @Override
+        public List<Board.Action> plan(Board currentBoard) {
+            List<Board.Action> plan = super.plan(currentBoard);
+            record(plans, currentBoard, plan, isGravity());
+            return plan;
+        }
+    }
+
+    /**
+     * A FunBrain that keeps the boards it plans for
+     */
+    static class RecordingFunBrain extends FunBrain {
+        final List<Board[]> plans = new ArrayList<>();
+
+        @Override
+        public List<Board.Action> plan(Board currentBoard) {
+            List<Board.Action> plan = super.plan(currentBoard);
+            record(plans, currentBoard, plan, isGravity());
+            return plan;
+        }
+    }
+
+    /**
+     * Check whether two boards have the same stack, leaving out their current pieces
+     * @param a the first board
+     * @param b the second board
+     * @return whether the stacks are the same
+     */
+    private static boolean sameStack(Board a, Board b) {
+        for (int y = 0; y < a.getHeight(); y++) {
+            for (int x = 0; x < a.getWidth(); x++) {
+                if (stack(a, x, y) != stack(b, x, y)) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get what is in a cell of the stack of a board
+     * @param board the board
+     * @param x the x value of the cell
+     * @param y the y value of the cell
+     * @return the type of the piece in the cell, or null if it is empty or the current piece's
+     */
+    private static Piece.PieceType stack(Board board, int x, int y) {
+        Piece piece = board.getCurrentPiece();
+        if (piece != null) {
+            for (Point p : piece.getBody()) {
+                if (board.getCurrentPieceX() + p.x == x && board.getCurrentPieceY() + p.y == y) {
+                    return null;
+                }
+            }
+        }
+        return board.getGrid(x, y);
+    }
+
+    /**
+     * Let a brain play a game of JBrainTetris as fast as it can, and check that every piece
+     * landed where the last plan for it meant it to
+     * @param brain the brain
+     * @param plans the boards the brain keeps
+     * @param seed the seed of the game
+     */
+    private static void checkPlansLand(Brain brain, List<Board[]> plans, long seed) throws Exception {
+        JBrainTetris[] tetris = new JBrainTetris[1];
+        SwingUtilities.invokeAndWait(() -> {
+            tetris[0] = new JBrainTetris();
+            tetris[0].createControlPanel();
+            tetris[0].setBrain(brain);
+            tetris[0].setTurbo(true);
+            tetris[0].startGame(seed);
+        });
+        long end = System.currentTimeMillis() + 20_000;
+        while (System.currentTimeMillis() < end) {
+            synchronized (plans) {
+                if (plans.size() > 150) break;
+            }
+            Thread.sleep(20);
+        }
+        SwingUtilities.invokeAndWait(() -> tetris[0].stopGame());
+
+        // Whenever the stack has changed between two plans, the piece in between was placed,
+        // and it must have landed where the last plan for it meant it to
+        int placed = 0;
+        synchronized (plans) {
+            for (int i = 1; i < plans.size(); i++) {
+                Board before = plans.get(i - 1)[0], after = plans.get(i)[0];
+                if (!sameStack(before, after)) {
+                    assertTrue(sameStack(plans.get(i - 1)[1], after));
+                    placed++;
+                }
+            }
+        }
+        assertTrue(placed > 20);
+    }
+
+    @Test
+    void plansLand() throws Exception {
+        RecordingAnytimeBrain anytime = new RecordingAnytimeBrain();
+        checkPlansLand(anytime, anytime.plans, 4);
+        assertTrue(anytime.isGravity());
+
+        // A fall once sent a FunBrain piece in a well off target in this game
+        RecordingFunBrain fun = new RecordingFunBrain();
+        checkPlansLand(fun, fun.plans, 3);
+        assertTrue(fun.isGravity());
+    }
+}
@@ -0,0 +1,82 @@
+import assignment.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PieceGeneratorTest {
+
+    @Test
+    void uniform() {
+        PieceGenerator a = new UniformPieceGenerator(5), b = new UniformPieceGenerator(5);
+        EnumSet<Piece.PieceType> types = EnumSet.noneOf(Piece.PieceType.class);
+        for(int i = 0; i < 200; i++) {
+            Piece piece = a.next();
+            assertEquals(piece, b.next());
+            assertEquals(0, piece.getRotationIndex());
+            types.add(piece.getType());
+        }
+        assertEquals(EnumSet.allOf(Piece.PieceType.class), types);
+    }
+
+    @Test
+    void bag() {
+        PieceGenerator gen = new BagPieceGenerator(9);
+        for(int bag = 0; bag < 20; bag++) {
+            EnumSet<Piece.PieceType> types = EnumSet.noneOf(Piece.PieceType.class);
+            for(int i = 0; i < 7; i++) {
+                assertTrue(types.add(gen.next().getType()));
+            }
+        }
+    }
+
+    @Test
+    void peek() {
+        PieceGenerator a = new BagPieceGenerator(3), b = new BagPieceGenerator(3);
+        // Looking ahead, even far past the first buffer, takes nothing
+        Piece[] ahead = new Piece[40];
+        for(int i = ahead.length - 1; i >= 0; i--) {
+            ahead[i] = a.peek(i);
+        }
+        assertEquals(ahead[0], a.peek(0));
+        for(int i = 0; i < ahead.length; i++) {
+            assertEquals(ahead[i], a.peek(0));
+            assertEquals(ahead[i], a.next());
+            assertEquals(ahead[i], b.next());
+        }
+        for(int i = 0; i < 20; i++) {
+            assertEquals(b.next(), a.next());
+        }
+        assertThrows(IllegalArgumentException.class, () -> a.peek(-1));
+    }
+
+    @Test
+    void split() {
+        PieceGenerator a = new UniformPieceGenerator(11), b = new UniformPieceGenerator(11);
+        PieceGenerator c = a.split(), d = b.split();
+        assertEquals(UniformPieceGenerator.class, c.getClass());
+        assertEquals(BagPieceGenerator.class, new BagPieceGenerator(1).split().getClass());
+        // Splits of generators seeded the same way are the same, but not the same as the parent
+        int same = 0;
+        for(int i = 0; i < 100; i++) {
+            Piece p = c.next();
+            assertEquals(p, d.next());
+            Piece q = a.next();
+            assertEquals(q, b.next());
+            if(p.equals(q)) same++;
+        }
+        assertTrue(same < 50);
+    }
+
+    @Test
+    void game() {
+        Game game = new Game();
+        game.start(new BagPieceGenerator(4));
+        PieceGenerator expected = new BagPieceGenerator(4);
+        assertEquals(expected.next(), game.getBoard().getCurrentPiece());
+        assertEquals(expected.peek(0), game.getPieceGenerator().peek(0));
+        game.tick(Board.Action.DROP);
+        assertEquals(expected.next(), game.getBoard().getCurrentPiece());
+    }
+}
@@ -0,0 +1,146 @@
+import assignment.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static assignment.Piece.PieceType.*;
+import static assignment.Board.Action.*;
+import static assignment.Board.Result.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlacementSearchTest {
+    private static final int WIDTH = 10;
+    private static final int HEIGHT = 20;
+    TetrisBoard board;
+    PlacementSearch search;
+
+    @BeforeEach
+    void setUp() {
+        board = new TetrisBoard(WIDTH, HEIGHT);
+        search = new PlacementSearch();
+    }
+
+    /**
+     * Play every path found by the search, checking that each one places the piece where the
+     * search said, and that no two placements leave the same board
+     */
+    private void checkPaths() {
+        Set<Board> results = new HashSet<>();
+        for(int i = 0; i < search.getCount(); i++) {
+            int placement = search.getPlacement(i);
+            List<Board.Action> path = search.getPath(i);
+            Board b = new TetrisBoard(board);
+            for(int j = 0; j < path.size() - 1; j++) {
+                assertEquals(SUCCESS, b.move(path.get(j)));
+            }
+            int x = b.getCurrentPieceX(), y = b.getCurrentPieceY();
+            Board.Action last = path.get(path.size() - 1);
+            if(last == DROP) y = b.dropHeight(b.getCurrentPiece(), x);
+            assertEquals(PlacementSearch.x(placement), x);
+            assertEquals(PlacementSearch.y(placement), y);
+            assertEquals(PlacementSearch.rotation(placement), b.getCurrentPiece().getRotationIndex());
+            assertEquals(PLACE, b.move(last));
+            assertTrue(results.add(b));
+        }
+    }
+
+    @Test
+    void search() {
+        assertEquals(0, search.search(board));
+
+        board.nextPiece(new TetrisPiece(SQUARE), 4, 18);
+        assertEquals(9, search.search(board));
+        checkPaths();
+
+        setUp();
+        board.nextPiece(new TetrisPiece(T), 3, 17);
+        assertEquals(34, search.search(board));
+        checkPaths();
+
+        // rotations that cover the same cells are only counted once
+        setUp();
+        board.nextPiece(new TetrisPiece(RIGHT_DOG), 3, 17);
+        assertEquals(17, search.search(board));
+        checkPaths();
+
+        setUp();
+        board.nextPiece(new TetrisPiece(STICK), 3, 16);
+        assertEquals(17, search.search(board));
+        checkPaths();
+        assertEquals(List.of(DROP), search.getPath(0));
+    }
+
+    @Test
+    void tuck() {
+        // A roof over columns 0-3 at height 2, with room underneath it
+        board.nextPiece(new TetrisPiece(STICK), 0, 0);
+        board.move(DROP);
+        board.nextPiece(new TetrisPiece(SQUARE), 4, 0);
+        board.move(DROP);
+        board.nextPiece(new TetrisPiece(STICK), 0, 0);
+        board.move(DROP);
+        board.nextPiece(new TetrisPiece(STICK).clockwisePiece(), -2, 2);
+        board.move(DROP);
+
+        // A stick can slide under the roof, which dropping alone never finds
+        board.nextPiece(new TetrisPiece(STICK), 3, 16);
+        search.search(board);
+        checkPaths();
+        boolean tucked = false;
+        for(int placement : search.getPlacements()) {
+            tucked |= PlacementSearch.rotation(placement) % 2 == 0
+                    && PlacementSearch.x(placement) < 4 && PlacementSearch.y(placement) < 3;
+        }
+        assertTrue(tucked);
+    }
+
+    @Test
+    void gravity() {
+        // The roof from tuck, with a stick that falls a row before each move
+        board.nextPiece(new TetrisPiece(STICK), 0, 0);
+        board.move(DROP);
+        board.nextPiece(new TetrisPiece(SQUARE), 4, 0);
+        board.move(DROP);
+        board.nextPiece(new TetrisPiece(STICK), 0, 0);
+        board.move(DROP);
+        board.nextPiece(new TetrisPiece(STICK).clockwisePiece(), -2, 2);
+        board.move(DROP);
+        board.nextPiece(new TetrisPiece(STICK), 3, 16);
+        search.setGravity(true);
+        int count = search.search(board);
+        assertTrue(count > 0);
+
+        // Every path, followed with a fall before each move, places the piece where the search said
+        for(int i = 0; i < count; i++) {
+            int placement = search.getPlacement(i);
+            Board b = new TetrisBoard(board);
+            int x = 0, y = 0, rotation = 0;
+            for(Board.Action move : search.getPath(i)) {
+                x = b.getCurrentPieceX();
+                y = b.getCurrentPieceY();
+                rotation = b.getCurrentPiece().getRotationIndex();
+                if(b.move(DOWN) == PLACE) break;
+                x = b.getCurrentPieceX();
+                y = b.getCurrentPieceY();
+                rotation = b.getCurrentPiece().getRotationIndex();
+                if(move == DROP) y = b.dropHeight(b.getCurrentPiece(), x);
+                if(b.move(move) == PLACE) break;
+            }
+            assertNull(b.getCurrentPiece());
+            assertEquals(PlacementSearch.x(placement), x);
+            assertEquals(PlacementSearch.y(placement), y);
+            assertEquals(PlacementSearch.rotation(placement), rotation);
+        }
+    }
+
+    @Test
+    void encode() {
+        int placement = PlacementSearch.encode(3, -2, -1);
+        assertEquals(3, PlacementSearch.rotation(placement));
+        assertEquals(-2, PlacementSearch.x(placement));
+        assertEquals(-1, PlacementSearch.y(placement));
+    }
+}
@@ -186,6 +186,54 @@ class TetrisBoardTest {
         for(Point p : SQUARE.getSpawnBody()) {
             assertEquals(nBoard.getGrid(startX + p.x, startY + p.y), SQUARE);
         }
+
+        // placing on a copy leaves the original alone, and the other way around
+        Board dropped = board.testMove(DROP);
+        assertEquals(board, oBoard);
+        assertEquals(2, dropped.getColumnHeight(0));
+        assertEquals(0, board.getColumnHeight(0));
+        board.move(RIGHT);
+        board.move(DROP);
+        assertEquals(SQUARE, dropped.getGrid(0, 0));
+        assertNull(dropped.getGrid(2, 0));
+        assertEquals(SQUARE, board.getGrid(2, 0));
+        assertNull(board.getGrid(0, 0));
+    }
+
+    @Test
+    void pushPop() {
+        assertThrows(IllegalStateException.class, () -> board.pop());
+
+        board.nextPiece(new TetrisPiece(SQUARE), new Point(0, 0));
+        board.move(DROP);
+        Point pos = new Point(0, 2);
+        board.nextPiece(new TetrisPiece(RIGHT_L), new Point(pos));
+        Board oBoard = new TetrisBoard(board);
+
+        // moving, then placing and clearing a row, then undoing both
+        assertEquals(SUCCESS, board.push(DOWN));
+        assertEquals(OUT_BOUNDS, board.push(RIGHT));
+        assertEquals(PLACE, board.push(DROP));
+        assertEquals(1, board.getRowsCleared());
+        assertEquals(RIGHT_L, board.getGrid(2, 2));
+        board.pop();
+        assertEquals(OUT_BOUNDS, board.getLastResult());
+        board.pop();
+        assertEquals(SUCCESS, board.getLastResult());
+        board.pop();
+        assertEquals(board, oBoard);
+        assertEquals(pos, board.getCurrentPiecePosition());
+        assertEquals(0, board.getRowsCleared());
+        assertEquals(2, board.getColumnHeight(0));
+        assertEquals(0, board.getColumnHeight(2));
+        assertEquals(2, board.getRowWidth(1));
+        assertEquals(2, board.getMaxHeight());
+        assertThrows(IllegalStateException.class, () -> board.pop());
+
+        // move discards the journal
+        board.push(RIGHT);
+        board.move(DOWN);
+        assertThrows(IllegalStateException.class, () -> board.pop());
     }
 
     @Test
@@ -202,6 +250,15 @@ class TetrisBoardTest {
         board.nextPiece(new TetrisPiece(SQUARE), new Point(pos));
 
         assertEquals(new Point(0, 1), board.getCurrentPiecePosition());
+        assertEquals(0, board.getCurrentPieceX());
+        assertEquals(1, board.getCurrentPieceY());
+
+        board.move(RIGHT);
+        assertEquals(new Point(1, 1), board.getCurrentPiecePosition());
+        assertEquals(1, board.getCurrentPieceX());
+
+        board.move(DROP);
+        assertNull(board.getCurrentPiecePosition());
     }
 
     @Test
@@ -214,6 +271,13 @@ class TetrisBoardTest {
         IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
                 () -> board.nextPiece(new TetrisPiece(SQUARE), illegalPos));
         assertEquals(e.getMessage(), "Spawn position out of bounds");
+
+        setUp();
+        board.nextPiece(new TetrisPiece(SQUARE), pos.x, pos.y);
+        check(pos, SQUARE);
+        assertEquals(pos, board.getCurrentPiecePosition());
+        assertThrows(IllegalArgumentException.class,
+                () -> board.nextPiece(new TetrisPiece(SQUARE), illegalPos.x, illegalPos.y));
     }
 
     @Test
@@ -238,6 +302,31 @@ class TetrisBoardTest {
         assertNotEquals(board, "yellow");
     }
 
+    @Test
+    void testHashCode() {
+        Board yB = new TetrisBoard(WIDTH, HEIGHT);
+        assertEquals(board.hashCode(), yB.hashCode());
+
+        // the same grid reached in different ways
+        board.nextPiece(new TetrisPiece(SQUARE), new Point(1, 2));
+        board.move(LEFT);
+        board.move(DROP);
+        yB.nextPiece(new TetrisPiece(SQUARE), new Point(0, 0));
+        assertEquals(board, yB);
+        assertEquals(board.hashCode(), yB.hashCode());
+        assertEquals(board.getHash(), ((TetrisBoard) yB).getHash());
+
+        // and after clearing rows
+        board.nextPiece(new TetrisPiece(STICK).clockwisePiece(), new Point(0, 0));
+        board.move(DROP);
+        assertEquals(2, board.getRowsCleared());
+        assertNotEquals(board.getHash(), ((TetrisBoard) yB).getHash());
+        board.nextPiece(new TetrisPiece(SQUARE), new Point(0, 2));
+        board.move(DROP);
+        assertEquals(4, board.getRowsCleared());
+        assertEquals(new TetrisBoard(WIDTH, HEIGHT).hashCode(), board.hashCode());
+    }
+
     @Test
     void getLastResult() {
         board.move(RIGHT);
@@ -344,6 +433,18 @@ class TetrisBoardTest {
         assertEquals(2, board.getColumnHeight(0));
         assertEquals(3, board.getColumnHeight(1));
         assertEquals(0, board.getColumnHeight(2));
+
+        // clearing the top block of a column drops the column to the block below it
+        setUp();
+        board.nextPiece(new TetrisPiece(RIGHT_DOG), new Point(pos));
+        board.move(DOWN);
+        board.nextPiece(new TetrisPiece(STICK).clockwisePiece(), new Point(-2, 1));
+        assertEquals(PLACE, board.move(DOWN));
+        assertEquals(1, board.getRowsCleared());
+        assertEquals(4, board.getColumnHeight(0));
+        assertEquals(1, board.getColumnHeight(1));
+        assertEquals(0, board.getColumnHeight(2));
+        assertEquals(4, board.getMaxHeight());
     }
 
     @Test
@@ -372,5 +473,12 @@ class TetrisBoardTest {
         assertEquals(SQUARE, board.getGrid(0, 1));
         assertEquals(SQUARE, board.getGrid(1, 1));
         assertNull(board.getGrid(2, 2));
+        assertNull(board.getGrid(-1, 0));
+        assertNull(board.getGrid(WIDTH, HEIGHT));
+
+        // placed pieces stay in the grid
+        board.move(DROP);
+        assertNull(board.getCurrentPiece());
+        assertEquals(SQUARE, board.getGrid(1, 1));
     }
 }
\ No newline at end of file
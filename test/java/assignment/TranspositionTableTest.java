@@ -0,0 +1,124 @@
+import assignment.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static assignment.Board.Action.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranspositionTableTest {
+
+    @Test
+    void getAndPut() {
+        TranspositionTable table = new TranspositionTable(100);
+        assertEquals(128, table.getCapacity());
+        assertNull(table.get(42));
+        table.put(42, 2, 1, 3.5, LEFT);
+        TranspositionTable.Entry entry = table.get(42);
+        assertNotNull(entry);
+        assertEquals(2, entry.getDepth());
+        assertEquals(1, entry.getRowsCleared());
+        assertEquals(3.5, entry.getScore());
+        assertEquals(LEFT, entry.getMove());
+
+        // The same key is replaced, not duplicated
+        table.put(42, 0, 0, -1, null);
+        assertEquals(-1, table.get(42).getScore());
+        assertEquals(2, table.getHits());
+        assertEquals(1, table.getMisses());
+        assertEquals(2, table.getStores());
+        assertEquals(0, table.getEvictions());
+
+        table.clear();
+        assertNull(table.get(42));
+        assertEquals(0, table.getHits());
+        assertEquals(1, table.getMisses());
+        assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(1));
+    }
+
+    @Test
+    void eviction() {
+        // A table of one bucket holds two entries, keeping the deepest
+        TranspositionTable table = new TranspositionTable(2);
+        table.put(1, 5, 0, 1, null);
+        table.put(2, 0, 0, 2, null);
+        table.put(3, 1, 0, 3, null);
+        assertEquals(1, table.getEvictions());
+        assertNotNull(table.get(1));
+        assertNull(table.get(2));
+        assertNotNull(table.get(3));
+        table.put(4, 9, 0, 4, null);
+        assertEquals(2, table.getEvictions());
+        assertNotNull(table.get(4));
+        assertNotNull(table.get(1));
+        assertNull(table.get(3));
+
+        // However many are stored, it never holds more than its capacity
+        TranspositionTable small = new TranspositionTable(64);
+        for(long k = 0; k < 1000; k++) {
+            small.put(k * 0x9e3779b97f4a7c15L, 0, 0, k, null);
+        }
+        int found = 0;
+        for(long k = 0; k < 1000; k++) {
+            if(small.get(k * 0x9e3779b97f4a7c15L) != null) found++;
+        }
+        assertTrue(found <= 64);
+        assertEquals(1000 - found, small.getEvictions());
+    }
+
+    @Test
+    void concurrent() throws InterruptedException {
+        TranspositionTable table = new TranspositionTable(1 << 10);
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for(int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for(long k = 0; k < 20_000; k++) {
+                    long key = k % 3000 * 0xbf58476d1ce4e5b9L;
+                    TranspositionTable.Entry entry = table.get(key);
+                    // An entry found always belongs to its key
+                    if(entry != null && entry.getScore() != key) {
+                        synchronized(failures) {
+                            failures.add(new AssertionError("Wrong entry for " + key));
+                        }
+                    }
+                    table.put(key, (int) (k & 3), 0, key, null);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for(Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(failures.isEmpty());
+        assertEquals(80_000, table.getHits() + table.getMisses());
+        assertEquals(80_000, table.getStores());
+        assertTrue(table.getHits() > 0);
+    }
+
+    @Test
+    void sameDecisions() {
+        // Brains that cache make the same moves as brains that don't, sharing one table
+        TranspositionTable table = new TranspositionTable(1 << 16);
+        FunBrain plain = new FunBrain();
+        FunBrain cached = new FunBrain();
+        cached.setTranspositionTable(table);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        FunBrain parallel = new FunBrain(pool);
+        parallel.setTranspositionTable(table);
+        Game game = new Game();
+        game.start(7);
+        for(int i = 0; i < 300 && game.isGameOn(); i++) {
+            Board.Action move = plain.nextMove(game.getBoard());
+            assertEquals(move, cached.nextMove(game.getBoard()));
+            assertEquals(move, parallel.nextMove(game.getBoard()));
+            game.tick(move);
+        }
+        pool.shutdown();
+        // The piece falls between moves, so most boards come up again
+        assertTrue(table.getHits() > table.getMisses());
+    }
+}
@@ -0,0 +1,59 @@
+import assignment.*;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Point;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeightTunerTest {
+
+    @Test
+    void weights() {
+        Weights weights = new Weights(Weights.DEFAULT.toArray());
+        assertEquals(Weights.DEFAULT, weights);
+        assertEquals(Weights.DEFAULT.hashCode(), weights.hashCode());
+        assertArrayEquals(new double[] {3, 40, 10, 20, 0, 0}, weights.toArray());
+        assertNotEquals(Weights.DEFAULT, new Weights(3, 40, 10, 20, 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new Weights(3, 40, 10, 20));
+    }
+
+    @Test
+    void scoreWithWeights() {
+        // An empty well in the middle of a flat floor
+        TetrisBoard board = new TetrisBoard(10, 24);
+        board.nextPiece(new TetrisPiece(Piece.PieceType.STICK), new Point(0, 18));
+        board.move(Board.Action.DROP);
+        board.nextPiece(new TetrisPiece(Piece.PieceType.STICK), new Point(5, 18));
+        board.move(Board.Action.DROP);
+        FunBrain brain = new FunBrain();
+        double plain = brain.scoreBoard(board);
+        brain.setWeights(new Weights(3, 40, 10, 20, 0, 0));
+        assertEquals(plain, brain.scoreBoard(board));
+        brain.setWeights(new Weights(3, 40, 10, 20, 5, 5));
+        assertTrue(brain.scoreBoard(board) < plain);
+        // The same with the piece in the air, which counts the features without the board's help
+        board.nextPiece(new TetrisPiece(Piece.PieceType.SQUARE), new Point(4, 18));
+        brain.setWeights(Weights.DEFAULT);
+        double inAir = brain.scoreBoard(board);
+        brain.setWeights(new Weights(3, 40, 10, 20, 5, 5));
+        assertTrue(brain.scoreBoard(board) < inAir);
+    }
+
+    @Test
+    void tune() {
+        GameRunner runner = new GameRunner(2);
+        WeightTuner tuner = new WeightTuner(runner, BagPieceGenerator::new, 4, 2, 40, 3);
+        assertTrue(tuner.fitness(Weights.DEFAULT, 1) > 0);
+        Weights first = tuner.tune(Weights.DEFAULT, 2, null);
+        // The same seed tunes the same weights
+        Weights second = new WeightTuner(runner, BagPieceGenerator::new, 4, 2, 40, 3)
+                .tune(Weights.DEFAULT, 2, null);
+        assertEquals(first, second);
+        for(double w : first.toArray()) {
+            assertTrue(w >= 0);
+        }
+        runner.shutdown();
+        assertThrows(IllegalArgumentException.class,
+                () -> new WeightTuner(runner, BagPieceGenerator::new, 1, 2, 40, 3));
+    }
+}